@@ -0,0 +1,48 @@
+import java.util.List;
+
+import bench.Workload;
+
+/**
+ * Clustering a whole data set with {@link DBSCANCluster}.
+ */
+public class BatchWorkload implements Workload {
+
+    private List<Point> points;
+
+    private DBSCANCluster cluster;
+
+    private double eps;
+
+    @Override
+    public void setUp(String dataSet, int numPoints, int dimension,
+                      double eps, int minPts, String index) {
+        points = BenchData.generate(dataSet, numPoints, dimension);
+        this.eps = eps;
+        cluster = new DBSCANCluster(eps, minPts,
+                BenchData.newIndex(index, eps));
+    }
+
+    @Override
+    public void setSpatialOrder(String order) {
+        cluster.setSpatialOrder(BenchData.curve(order));
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public Object run() {
+        cluster.cluster(points);
+        return cluster.pointsToCluster;
+    }
+
+    /**
+     * Storage positions are the positions in the clustered list, which is
+     * also the order the copies are allocated in.
+     */
+    @Override
+    public double storageRuns() {
+        return BenchData.storageRuns(cluster.pointsToCluster, eps);
+    }
+}
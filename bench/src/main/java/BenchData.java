@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Data sets and indices shared by the benchmark workloads.
+ */
+final class BenchData {
+
+    private static final long SEED = 42L;
+
+    private static final int NUM_BLOBS = 10;
+
+    private static final double SPACE_SIDE = 100.0;  // side of the data space
+
+    private BenchData() {
+    }
+
+    /**
+     * Generate points. Blobs are gaussian clusters with unit standard
+     * deviation around random centers, uniform points are noise over the
+     * whole space, accidents resample the bundled accident data with a
+     * small jitter (their dimension is fixed by the file).
+     *
+     * @param dataSet   blobs, uniform or accidents
+     * @param numPoints number of points to generate
+     * @param dimension number of dimensions of blobs and uniform points
+     * @return
+     */
+    static List<Point> generate(String dataSet, int numPoints,
+                                int dimension) {
+        Random random = new Random(SEED);
+        List<Point> points = new ArrayList<>(numPoints);
+        switch (dataSet) {
+            case "blobs": {
+                double[][] centers = new double[NUM_BLOBS][dimension];
+                for (double[] center : centers) {
+                    for (int k = 0; k < dimension; k++) {
+                        center[k] = random.nextDouble() * SPACE_SIDE;
+                    }
+                }
+                for (int i = 0; i < numPoints; i++) {
+                    int blob = random.nextInt(NUM_BLOBS);
+                    double[] pos = new double[dimension];
+                    for (int k = 0; k < dimension; k++) {
+                        pos[k] = centers[blob][k] + random.nextGaussian();
+                    }
+                    points.add(new Point(pos, i, blob));
+                }
+                break;
+            }
+            case "uniform":
+                for (int i = 0; i < numPoints; i++) {
+                    double[] pos = new double[dimension];
+                    for (int k = 0; k < dimension; k++) {
+                        pos[k] = random.nextDouble() * SPACE_SIDE;
+                    }
+                    points.add(new Point(pos, i, -1));
+                }
+                break;
+            case "accidents": {
+                List<double[]> rows = readAccidents();
+                for (int i = 0; i < numPoints; i++) {
+                    double[] row = rows.get(random.nextInt(rows.size()));
+                    double[] pos = new double[row.length];
+                    for (int k = 0; k < row.length; k++) {
+                        pos[k] = row[k] + 0.1 * random.nextGaussian();
+                    }
+                    points.add(new Point(pos, i, -1));
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown data set " +
+                        dataSet);
+        }
+        return points;
+    }
+
+    /**
+     * Create an empty neighbor index.
+     *
+     * @param index linear, grid, kdtree or rtree
+     * @param eps   radius of the neighborhood, used as grid cell side
+     * @return
+     */
+    static NeighborIndex newIndex(String index, double eps) {
+        switch (index) {
+            case "linear":
+                return new LinearScanIndex();
+            case "grid":
+                return new GridIndex(eps);
+            case "kdtree":
+                return new KDTreeIndex();
+            case "rtree":
+                return new RTreeIndex();
+            case "lsh":
+                return new LSHIndex(eps);
+            default:
+                throw new IllegalArgumentException("Unknown index " + index);
+        }
+    }
+
+    /**
+     * Get a space-filling curve by name.
+     *
+     * @param order arrival, morton or hilbert
+     * @return curve, or null for the arrival order
+     */
+    static SpaceFillingCurve curve(String order) {
+        switch (order) {
+            case "arrival":
+                return null;
+            case "morton":
+                return SpaceFillingCurve.MORTON;
+            case "hilbert":
+                return SpaceFillingCurve.HILBERT;
+            default:
+                throw new IllegalArgumentException("Unknown order " + order);
+        }
+    }
+
+    /**
+     * Read the accident data, from the path in the {@code bench.accidents}
+     * system property or from the source tree.
+     */
+    private static List<double[]> readAccidents() {
+        String fileName = System.getProperty("bench.accidents",
+                "src/accident_data.txt");
+        List<double[]> rows = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(fileName))) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] strs = line.split(",");
+                double[] row = new double[strs.length];
+                for (int k = 0; k < strs.length; k++) {
+                    row[k] = Double.parseDouble(strs[k].trim());
+                }
+                rows.add(row);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read accident data " +
+                    fileName, e);
+        }
+        return rows;
+    }
+
+    /**
+     * Mean number of runs of consecutive storage positions read by an
+     * eps-query, over every point. A query whose neighbors sit one after
+     * the other reads one run, scattered neighbors one run each; a stand-in
+     * for the cache lines touched that needs no hardware counters.
+     *
+     * @param stored points in storage order
+     * @param eps    radius of the neighborhood
+     * @return
+     */
+    static double storageRuns(List<Point> stored, double eps) {
+        GridIndex grid = new GridIndex(eps > 0.0 ? eps : 1.0);
+        Point[] probes = new Point[stored.size()];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new Point(stored.get(i).position, i, 0);
+            grid.insert(probes[i]);
+        }
+        long runs = 0L;
+        IntList slots = new IntList();
+        for (Point probe : probes) {
+            slots.clear();
+            for (Point nbr : grid.getNeighbors(probe, eps)) {
+                slots.add(nbr.pointIndex);
+            }
+            int[] sorted = slots.toArray();
+            Arrays.sort(sorted);
+            for (int j = 0; j < sorted.length; j++) {
+                if (j == 0 || sorted[j] != sorted[j - 1] + 1) {
+                    runs++;
+                }
+            }
+        }
+        return probes.length == 0 ? 0.0 : (double) runs / probes.length;
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.List;
+
+import bench.Workload;
+
+/**
+ * Single inserts into an {@link IncDBSCANCluster} holding a fixed number of
+ * points. Every iteration starts from a fresh clusterer and may insert up
+ * to a tenth of that number. A spatial order reorders the index every
+ * {@value #REORDER_PERIOD} inserts, timed inserts included.
+ */
+public class IncrementalWorkload implements Workload {
+
+    static final int REORDER_PERIOD = 1000;  // inserts between two reorders
+
+    private List<Point> base;  // points held before any timed insert
+
+    private List<Point> stream;  // points inserted by the timed operations
+
+    private double eps;
+
+    private int minPts;
+
+    private String index;
+
+    private SpaceFillingCurve spatialOrder;  // storage order, or null
+
+    private IncDBSCANCluster cluster;
+
+    private int next;  // next stream point to insert
+
+    @Override
+    public void setUp(String dataSet, int numPoints, int dimension,
+                      double eps, int minPts, String index) {
+        int numStream = Math.max(1, numPoints / 10);
+        List<Point> points = BenchData.generate(dataSet,
+                numPoints + numStream, dimension);
+        this.base = points.subList(0, numPoints);
+        this.stream = points.subList(numPoints, points.size());
+        this.eps = eps;
+        this.minPts = minPts;
+        this.index = index;
+    }
+
+    @Override
+    public void setSpatialOrder(String order) {
+        spatialOrder = BenchData.curve(order);
+    }
+
+    @Override
+    public void prepare() {
+        rebuild();
+    }
+
+    @Override
+    public Object run() {
+        if (next == stream.size()) {
+            throw new IllegalStateException("More than " + stream.size() +
+                    " inserts in one iteration");
+        }
+        Point p = stream.get(next++);
+        cluster.incrementalUpdate(p);
+        return p;
+    }
+
+    private void rebuild() {
+        cluster = new IncDBSCANCluster(eps, minPts,
+                BenchData.newIndex(index, eps));
+        cluster.setSpatialOrder(spatialOrder, REORDER_PERIOD);
+        for (Point p : base) {
+            cluster.incrementalUpdate(new Point(p));
+        }
+        for (int i = 0; i < stream.size(); i++) {
+            stream.set(i, new Point(stream.get(i)));
+        }
+        next = 0;
+    }
+}
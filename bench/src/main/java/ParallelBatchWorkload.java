@@ -0,0 +1,33 @@
+import java.util.List;
+
+import bench.Workload;
+
+/**
+ * Clustering a whole data set with {@link ParallelDBSCANCluster} on all
+ * available processors.
+ */
+public class ParallelBatchWorkload implements Workload {
+
+    private List<Point> points;
+
+    private ParallelDBSCANCluster cluster;
+
+    @Override
+    public void setUp(String dataSet, int numPoints, int dimension,
+                      double eps, int minPts, String index) {
+        points = BenchData.generate(dataSet, numPoints, dimension);
+        cluster = new ParallelDBSCANCluster(eps, minPts,
+                Runtime.getRuntime().availableProcessors(),
+                BenchData.newIndex(index, eps));
+    }
+
+    @Override
+    public void prepare() {
+    }
+
+    @Override
+    public Object run() {
+        cluster.cluster(points);
+        return cluster.pointsToCluster;
+    }
+}
@@ -0,0 +1,59 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import bench.Workload;
+
+/**
+ * Clustering a columnar {@link PointStore} with {@link DBSCANCluster}, on
+ * its built-in eps-grid; the index parameter is ignored. A spatial order
+ * reorders the rows of a fresh copy of the store, inside the timed run.
+ */
+public class StoreBatchWorkload implements Workload {
+
+    private List<Point> points;
+
+    private DBSCANCluster cluster;
+
+    private PointStore store;
+
+    private double eps;
+
+    @Override
+    public void setUp(String dataSet, int numPoints, int dimension,
+                      double eps, int minPts, String index) {
+        points = BenchData.generate(dataSet, numPoints, dimension);
+        this.eps = eps;
+        cluster = new DBSCANCluster(eps, minPts);
+    }
+
+    @Override
+    public void setSpatialOrder(String order) {
+        cluster.setSpatialOrder(BenchData.curve(order));
+    }
+
+    @Override
+    public void prepare() {
+        store = PointStore.of(points);
+    }
+
+    @Override
+    public Object run() {
+        cluster.cluster(store);
+        return store;
+    }
+
+    /**
+     * Storage positions are the rows of the store.
+     */
+    @Override
+    public double storageRuns() {
+        int d = store.dimension();
+        List<Point> rows = new ArrayList<>(store.size());
+        for (int id = 0; id < store.size(); id++) {
+            rows.add(new Point(Arrays.copyOfRange(store.coords, id * d,
+                    (id + 1) * d), id, 0));
+        }
+        return BenchData.storageRuns(rows, eps);
+    }
+}
@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to cluster {@code numPoints} points from scratch with batch DBSCAN,
+ * sequential ({@code DBSCANCluster}) or parallel
+ * ({@code ParallelDBSCANCluster}). Divide by {@code numPoints} to compare
+ * with the per-insert cost of the incremental clusterer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchClusterBenchmark {
+
+    @Param({"blobs", "uniform", "accidents"})
+    public String dataSet;
+
+    @Param({"10000"})
+    public int numPoints;
+
+    @Param({"2", "8"})
+    public int dimension;
+
+    @Param({"1.5"})
+    public double eps;
+
+    @Param({"5"})
+    public int minPts;
+
+    @Param({"grid", "kdtree"})
+    public String index;
+
+    @Param({"BatchWorkload", "ParallelBatchWorkload"})
+    public String engine;
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load(engine);
+        workload.setUp(dataSet, numPoints, dimension, eps, minPts, index);
+    }
+
+    @Benchmark
+    public Object cluster() {
+        return workload.run();
+    }
+}
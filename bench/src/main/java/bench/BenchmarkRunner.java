@@ -0,0 +1,44 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.profile.LinuxPerfNormProfiler;
+import org.openjdk.jmh.profile.ProfilerException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line and
+ * always adds the gc profiler, so allocation rates are reported next to
+ * throughput and latency, and the {@link LayoutProfiler}. Where Linux
+ * {@code perf} can run, the perfnorm profiler is added as well and reports
+ * hardware counters, e.g. cache misses, per operation.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .addProfiler(LayoutProfiler.class);
+        if (perfAvailable()) {
+            options.addProfiler(LinuxPerfNormProfiler.class);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static boolean perfAvailable() {
+        try {
+            new LinuxPerfNormProfiler("");
+            return true;
+        } catch (ProfilerException e) {
+            System.err.println("perfnorm profiler unavailable: " +
+                    e.getMessage());
+            return false;
+        }
+    }
+}
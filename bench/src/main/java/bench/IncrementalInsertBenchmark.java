@@ -0,0 +1,84 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@code IncDBSCANCluster.incrementalUpdate}. Every iteration
+ * first rebuilds, outside of the timed region, a clusterer holding
+ * {@code numPoints} points, then times a batch of {@value #INSERTS}
+ * inserts of points drawn from the same distribution. Every sample is taken
+ * at about the same size, and no timer call or setup brackets a single
+ * insert. The score is the mean time per insert; {@code numPoints} must be
+ * at least ten times the batch. With {@code order} morton or hilbert the
+ * index storage is reordered along the curve once per batch, and the
+ * reorder is part of the score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class IncrementalInsertBenchmark {
+
+    static final int INSERTS = 1000;  // timed inserts per iteration
+
+    @Param({"blobs", "uniform", "accidents"})
+    public String dataSet;
+
+    @Param({"10000"})
+    public int numPoints;
+
+    @Param({"2", "8"})
+    public int dimension;
+
+    @Param({"1.5"})
+    public double eps;
+
+    @Param({"5"})
+    public int minPts;
+
+    @Param({"grid", "kdtree"})
+    public String index;
+
+    @Param({"arrival"})
+    public String order;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.load("IncrementalWorkload");
+        workload.setUp(dataSet, numPoints, dimension, eps, minPts, index);
+        workload.setSpatialOrder(order);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        workload.prepare();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERTS)
+    public Object insert() {
+        Object last = null;
+        for (int i = 0; i < INSERTS; i++) {
+            last = workload.run();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+/**
+ * Reports the storage layout a benchmark publishes at the end of each
+ * iteration, see {@link Workload#storageRuns()}, averaged over the
+ * iterations. Benchmarks that publish nothing get no result.
+ */
+public class LayoutProfiler implements InternalProfiler {
+
+    private static volatile double storageRuns = Double.NaN;  // last value
+
+    /**
+     * Publish the layout of the current iteration.
+     *
+     * @param runs runs of consecutive storage positions per eps-query
+     */
+    static void publish(double runs) {
+        storageRuns = runs;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Runs of consecutive storage positions read per eps-query";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams,
+                                IterationParams iterationParams) {
+        storageRuns = Double.NaN;
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(
+            BenchmarkParams benchmarkParams, IterationParams iterationParams,
+            IterationResult result) {
+        double runs = storageRuns;
+        if (Double.isNaN(runs)) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new ScalarResult("storageRuns",
+                runs, "runs/query", AggregationPolicy.AVG));
+    }
+}
@@ -0,0 +1,92 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to cluster {@code numPoints} points with batch DBSCAN, with the
+ * points kept in arrival order or in the order of a space-filling curve,
+ * on {@code Point} objects ({@code BatchWorkload}) or on a columnar store
+ * ({@code StoreBatchWorkload}). Generated points arrive in random order,
+ * so neighbors are scattered in memory unless they are sorted. Every
+ * iteration clusters once, after an untimed copy of the input.
+ * <p>
+ * The {@code storageRuns} result of the {@link LayoutProfiler} is the mean
+ * number of runs of consecutive storage positions an eps-query reads, a
+ * proxy for the cache lines it touches that needs no hardware counters.
+ * Where {@code perf} is installed, {@link BenchmarkRunner} adds the
+ * perfnorm profiler, which reports the actual cache misses per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpatialOrderBenchmark {
+
+    @Param({"uniform"})
+    public String dataSet;
+
+    @Param({"200000"})
+    public int numPoints;
+
+    @Param({"2"})
+    public int dimension;
+
+    @Param({"0.5"})
+    public double eps;
+
+    @Param({"5"})
+    public int minPts;
+
+    @Param({"grid", "kdtree"})
+    public String index;
+
+    @Param({"BatchWorkload", "StoreBatchWorkload"})
+    public String engine;
+
+    @Param({"arrival", "morton", "hilbert"})
+    public String order;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        workload = Workload.load(engine);
+        workload.setUp(dataSet, numPoints, dimension, eps, minPts, index);
+        workload.setSpatialOrder(order);
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() {
+        workload.prepare();
+    }
+
+    /**
+     * Publish the layout left by the iteration to the
+     * {@link LayoutProfiler}.
+     */
+    @TearDown(Level.Iteration)
+    public void measureLayout() {
+        LayoutProfiler.publish(workload.storageRuns());
+    }
+
+    @Benchmark
+    public Object cluster() {
+        return workload.run();
+    }
+}
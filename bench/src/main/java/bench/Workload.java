@@ -0,0 +1,73 @@
+package bench;
+
+/**
+ * Clustering workload driven by a benchmark. JMH refuses benchmarks in the
+ * default package, where the clusterers live, so the workloads are written
+ * there and reached through this interface. Implementations are loaded
+ * once per trial, the timed path is a plain interface call.
+ */
+public interface Workload {
+
+    /**
+     * Generate the data and build the clusterer.
+     *
+     * @param dataSet   blobs, uniform or accidents
+     * @param numPoints number of points to cluster
+     * @param dimension number of dimensions of generated data
+     * @param eps       radius of the neighborhood
+     * @param minPts    minimum number of points of a core point
+     * @param index     neighbor index, linear, grid, kdtree, rtree or lsh
+     */
+    void setUp(String dataSet, int numPoints, int dimension, double eps,
+               int minPts, String index);
+
+    /**
+     * Choose the memory order of the clustered points.
+     *
+     * @param order arrival, morton or hilbert
+     */
+    default void setSpatialOrder(String order) {
+        if (!"arrival".equals(order)) {
+            throw new UnsupportedOperationException("Workload keeps the " +
+                    "arrival order");
+        }
+    }
+
+    /**
+     * Untimed preparation before each measured iteration.
+     */
+    void prepare();
+
+    /**
+     * Timed operation.
+     *
+     * @return result to be consumed by the benchmark
+     */
+    Object run();
+
+    /**
+     * Layout left by the last run, as the mean number of runs of
+     * consecutive storage positions an eps-query reads. Untimed.
+     *
+     * @return runs per query, or NaN if the workload does not measure it
+     */
+    default double storageRuns() {
+        return Double.NaN;
+    }
+
+    /**
+     * Create a workload implemented in the default package.
+     *
+     * @param className name of the implementing class
+     * @return
+     */
+    static Workload load(String className) {
+        try {
+            return Class.forName(className).asSubclass(Workload.class)
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load workload " +
+                    className, e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a clustering with the one of sequential {@link DBSCANCluster}.
+ * DBSCAN fixes the core points, their clusters and the noise, but a border
+ * point may join any cluster with a core point within eps of it, so two
+ * correct clusterings agree on the first three up to renaming and only
+ * need a valid choice for the borders.
+ */
+final class ClusteringAssert {
+
+    private ClusteringAssert() {
+    }
+
+    /**
+     * Cluster the points with sequential DBSCAN on a grid.
+     *
+     * @param points points with pointIndex 0 .. n - 1
+     * @return cluster id of every point, by pointIndex
+     */
+    static int[] reference(List<Point> points, double eps, int minPts) {
+        DBSCANCluster cluster = new DBSCANCluster(eps, minPts,
+                new GridIndex(eps));
+        cluster.cluster(points);
+        return labels(cluster.pointsToCluster);
+    }
+
+    /**
+     * Collect the clusterIndex of every point by pointIndex.
+     *
+     * @return
+     */
+    static int[] labels(Iterable<Point> points) {
+        Map<Integer, Integer> byIndex = new HashMap<>();
+        for (Point p : points) {
+            byIndex.put(p.pointIndex, p.clusterIndex);
+        }
+        int[] labels = new int[byIndex.size()];
+        for (Map.Entry<Integer, Integer> entry : byIndex.entrySet()) {
+            labels[entry.getKey()] = entry.getValue();
+        }
+        return labels;
+    }
+
+    /**
+     * Check that {@code actual} is the DBSCAN clustering of the points, by
+     * comparison with sequential DBSCAN.
+     *
+     * @param points points with pointIndex 0 .. n - 1
+     * @param actual cluster id of every point, by pointIndex
+     */
+    static void assertDBSCAN(List<Point> points, int[] actual, double eps,
+                             int minPts) {
+        assertSameClustering(points, reference(points, eps, minPts), actual,
+                eps, minPts);
+    }
+
+    /**
+     * Check that two labelings have the same noise and the same partition
+     * of the core points, and that every border point of {@code actual}
+     * has a core neighbor in its cluster.
+     *
+     * @param points   points with pointIndex 0 .. n - 1
+     * @param expected cluster id of every point, by pointIndex
+     * @param actual   cluster id of every point, by pointIndex
+     */
+    static void assertSameClustering(List<Point> points, int[] expected,
+                                     int[] actual, double eps, int minPts) {
+        int n = points.size();
+        assertEquals(n, actual.length, "number of labelled points");
+        Point[] byIndex = new Point[n];
+        GridIndex grid = new GridIndex(eps > 0.0 ? eps : 1.0);
+        for (Point p : points) {
+            byIndex[p.pointIndex] = new Point(p.position, p.pointIndex, 0);
+            grid.insert(byIndex[p.pointIndex]);
+        }
+        boolean[] core = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            core[i] = grid.getNeighbors(byIndex[i], eps).size() >= minPts;
+        }
+
+        Map<Integer, Integer> toActual = new HashMap<>();
+        Map<Integer, Integer> toExpected = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if ((expected[i] == Point.NOISE) != (actual[i] == Point.NOISE)) {
+                fail("point " + i + " is noise in only one clustering");
+            }
+            if (!core[i]) {
+                continue;
+            }
+            Integer a = toActual.putIfAbsent(expected[i], actual[i]);
+            Integer e = toExpected.putIfAbsent(actual[i], expected[i]);
+            if ((a != null && a != actual[i]) ||
+                    (e != null && e != expected[i])) {
+                fail("core point " + i + " is in cluster " + actual[i] +
+                        " instead of the cluster of " + expected[i] +
+                        ", clusters are split or merged");
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (core[i] || actual[i] == Point.NOISE) {
+                continue;
+            }
+            boolean reached = false;
+            for (Point nbr : grid.getNeighbors(byIndex[i], eps)) {
+                reached |= core[nbr.pointIndex] &&
+                        actual[nbr.pointIndex] == actual[i];
+            }
+            if (!reached) {
+                fail("border point " + i + " has no core neighbor in its " +
+                        "cluster " + actual[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentIncDBSCANClusterTest {
+
+    /**
+     * Threads insert interleaved shards of the points at once, with one
+     * lock for everything and with many stripes.
+     */
+    @Test
+    void concurrentInsertsMatchSequential()
+            throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int numStripes : new int[]{1, 64}) {
+                for (long seed = 0; seed < 5; seed++) {
+                    List<Point> points = TestData.copy(TestData.blobs(seed,
+                            3000, 2, 6, 20.0));
+                    ConcurrentIncDBSCANCluster cluster =
+                            new ConcurrentIncDBSCANCluster(0.6, 4, numStripes);
+                    List<Future<?>> shards = new ArrayList<>();
+                    for (int shard = 0; shard < 4; shard++) {
+                        int first = shard;
+                        shards.add(pool.submit(() -> {
+                            for (int i = first; i < points.size(); i += 4) {
+                                cluster.incrementalUpdate(points.get(i));
+                            }
+                        }));
+                    }
+                    for (Future<?> shard : shards) {
+                        shard.get();
+                    }
+
+                    int[] labels = new int[points.size()];
+                    for (Point p : points) {
+                        labels[p.pointIndex] = p.clusterIndex == Point.NOISE ?
+                                Point.NOISE :
+                                cluster.findRootClusterID(p.clusterIndex);
+                    }
+                    ClusteringAssert.assertDBSCAN(points, labels, 0.6, 4);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DisjointSetTest {
+
+    /**
+     * Random unions and member changes against a naive model, where every
+     * id stores the name of its set and a union renames a whole set.
+     */
+    @Test
+    void matchesNaiveModel() {
+        for (long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            DisjointSet set = new DisjointSet();
+            int[] name = new int[2000];
+            int[] members = new int[2000];
+            int size = 0;
+            for (int step = 0; step < 5000; step++) {
+                int op = random.nextInt(4);
+                if (op == 0 || size < 2) {
+                    assertEquals(size, set.makeSet());
+                    name[size] = size;
+                    size++;
+                } else if (op == 1) {
+                    int a = random.nextInt(size);
+                    int b = random.nextInt(size);
+                    int root = set.union(a, b);
+                    assertEquals(root, set.find(a));
+                    int from = name[b];
+                    int to = name[a];
+                    members[to] += from == to ? 0 : members[from];
+                    if (from != to) {
+                        members[from] = 0;
+                    }
+                    for (int id = 0; id < size; id++) {
+                        if (name[id] == from) {
+                            name[id] = to;
+                        }
+                    }
+                } else {
+                    int a = random.nextInt(size);
+                    int delta = op == 2 ? 1 + random.nextInt(3) :
+                            -Math.min(members[name[a]], 1 + random.nextInt(3));
+                    set.addMembers(a, delta);
+                    members[name[a]] += delta;
+                }
+                if (size == name.length) {
+                    break;
+                }
+            }
+
+            assertModel(set, name, members, size);
+
+            int[] newIds = set.compact();
+            assertEquals(size, newIds.length);
+            Map<Integer, Integer> toNew = new HashMap<>();
+            for (int id = 0; id < size; id++) {
+                if (members[name[id]] == 0) {
+                    assertEquals(-1, newIds[id], "dropped id " + id);
+                    continue;
+                }
+                Integer newId = toNew.putIfAbsent(name[id], newIds[id]);
+                assertTrue(newId == null || newId == newIds[id],
+                        "set of id " + id + " split by compact");
+                assertEquals(members[name[id]], set.getMembers(newIds[id]));
+            }
+            assertEquals(toNew.size(), set.numLive());
+            assertEquals(toNew.size(), set.size());
+            assertEquals(toNew.size(), new HashSet<>(toNew.values()).size());
+            for (int newId : toNew.values()) {
+                assertTrue(newId >= 0 && newId < set.size());
+                assertEquals(newId, set.find(newId));
+            }
+
+            // the compacted set keeps working
+            int id = set.makeSet();
+            assertEquals(toNew.size(), id);
+            set.addMembers(id, 1);
+            if (id > 0) {
+                set.union(0, id);
+                assertEquals(set.find(0), set.find(id));
+                assertEquals(toNew.size(), set.numLive());
+            }
+        }
+    }
+
+    @Test
+    void restoresFromParents() {
+        DisjointSet set = DisjointSet.of(new int[]{0, 0, 1, 3, 3, 2});
+        assertEquals(6, set.size());
+        assertEquals(0, set.find(5));
+        assertEquals(3, set.find(4));
+        assertEquals(0, set.numLive());
+        set.addMembers(5, 2);
+        assertEquals(2, set.getMembers(1));
+        assertEquals(1, set.numLive());
+    }
+
+    private static void assertModel(DisjointSet set, int[] name,
+                                    int[] members, int size) {
+        assertEquals(size, set.size());
+        Map<Integer, Integer> rootOf = new HashMap<>();
+        Set<Integer> live = new HashSet<>();
+        for (int id = 0; id < size; id++) {
+            int root = set.find(id);
+            Integer r = rootOf.putIfAbsent(name[id], root);
+            assertTrue(r == null || r == root, "id " + id + " in wrong set");
+            assertEquals(members[name[id]], set.getMembers(id));
+            if (members[name[id]] > 0) {
+                live.add(root);
+            }
+        }
+        assertEquals(rootOf.size(), new HashSet<>(rootOf.values()).size(),
+                "two sets share a root");
+        Set<Integer> liveRoots = new HashSet<>();
+        for (int i = 0; i < set.numLive(); i++) {
+            liveRoots.add(set.getLiveRoot(i));
+        }
+        assertEquals(live, liveRoots);
+    }
+}
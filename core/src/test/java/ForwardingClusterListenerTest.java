@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ForwardingClusterListenerTest {
+
+    /**
+     * Every event reaches the next listener, including events added to the
+     * interface later.
+     */
+    @Test
+    void forwardsEveryEvent() throws ReflectiveOperationException {
+        List<String> received = new ArrayList<>();
+        ClusterListener next = (ClusterListener) Proxy.newProxyInstance(
+                ClusterListener.class.getClassLoader(),
+                new Class<?>[]{ClusterListener.class},
+                (proxy, method, args) -> {
+                    received.add(method.getName());
+                    return null;
+                });
+        ForwardingClusterListener forwarding =
+                new ForwardingClusterListener(next);
+
+        Method[] methods = ClusterListener.class.getMethods();
+        for (Method method : methods) {
+            assertEquals(ForwardingClusterListener.class,
+                    ForwardingClusterListener.class.getMethod(
+                            method.getName(), method.getParameterTypes())
+                            .getDeclaringClass(),
+                    method.getName() + " is not forwarded");
+            Object[] args = new Object[method.getParameterCount()];
+            for (int i = 0; i < args.length; i++) {
+                Class<?> type = method.getParameterTypes()[i];
+                args[i] = type == int.class ? (Object) 0 :
+                        type == long.class ? (Object) 0L : null;
+            }
+            method.invoke(forwarding, args);
+            assertTrue(received.contains(method.getName()),
+                    method.getName() + " did not reach the next listener");
+        }
+        assertEquals(methods.length, received.size());
+    }
+}
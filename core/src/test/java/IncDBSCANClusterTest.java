@@ -0,0 +1,162 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+class IncDBSCANClusterTest {
+
+    private static final double EPS = 0.6;
+
+    private static final int MIN_PTS = 4;
+
+    private static List<Supplier<NeighborIndex>> indices() {
+        return List.of(LinearScanIndex::new, () -> new GridIndex(EPS),
+                KDTreeIndex::new, RTreeIndex::new);
+    }
+
+    private static int[] labels(IncDBSCANCluster cluster, List<Point> points) {
+        int[] labels = new int[points.size()];
+        for (Point p : points) {
+            labels[p.pointIndex] = cluster.getClusterId(p);
+        }
+        return labels;
+    }
+
+    @Test
+    void insertsMatchSequential() {
+        for (Supplier<NeighborIndex> index : indices()) {
+            for (long seed = 0; seed < 4; seed++) {
+                List<Point> points = TestData.copy(TestData.blobs(seed, 1200,
+                        2 + (int) (seed % 2), 5, 15.0));
+                IncDBSCANCluster cluster = new IncDBSCANCluster(EPS, MIN_PTS,
+                        index.get());
+                for (Point p : points) {
+                    cluster.incrementalUpdate(p);
+                }
+                ClusteringAssert.assertDBSCAN(points, labels(cluster, points),
+                        EPS, MIN_PTS);
+            }
+        }
+    }
+
+    @Test
+    void batchInsertsMatchSequential() {
+        for (Supplier<NeighborIndex> index : indices()) {
+            for (long seed = 0; seed < 4; seed++) {
+                List<Point> points = TestData.copy(TestData.blobs(seed, 1200,
+                        2, 5, 15.0));
+                IncDBSCANCluster cluster = new IncDBSCANCluster(EPS, MIN_PTS,
+                        index.get());
+                Random random = new Random(seed);
+                int next = 0;
+                while (next < points.size()) {
+                    int end = Math.min(points.size(),
+                            next + 1 + random.nextInt(80));
+                    if (random.nextInt(3) == 0) {
+                        cluster.incrementalUpdate(points.get(next));
+                        end = next + 1;
+                    } else {
+                        cluster.incrementalUpdate(new ArrayList<>(
+                                points.subList(next, end)));
+                    }
+                    next = end;
+                }
+                ClusteringAssert.assertDBSCAN(points, labels(cluster, points),
+                        EPS, MIN_PTS);
+            }
+        }
+    }
+
+    @Test
+    void deletesMatchSequential() {
+        int[] splits = new int[1];
+        for (Supplier<NeighborIndex> index : indices()) {
+            for (long seed = 0; seed < 4; seed++) {
+                List<Point> points = TestData.copy(TestData.blobs(seed, 1200,
+                        2, 5, 15.0));
+                IncDBSCANCluster cluster = new IncDBSCANCluster(EPS, MIN_PTS,
+                        index.get());
+                cluster.setListener(new ClusterListener() {
+                    @Override
+                    public void clusterSplit(int clusterId, int newClusterId) {
+                        splits[0]++;
+                    }
+                });
+                for (Point p : points) {
+                    cluster.incrementalUpdate(p);
+                }
+
+                List<Point> remaining = new ArrayList<>(points);
+                Collections.shuffle(remaining, new Random(seed));
+                for (int step = 0; step < 3; step++) {
+                    for (int i = 0; i < 200; i++) {
+                        cluster.incrementalDelete(remaining.remove(
+                                remaining.size() - 1));
+                    }
+                    assertRemaining(cluster, remaining);
+                }
+            }
+        }
+        assertTrue(splits[0] > 0, "no delete split a cluster");
+    }
+
+    @Test
+    void compactionKeepsClusters() {
+        List<Point> points = TestData.copy(TestData.blobs(3, 1500, 2, 6,
+                15.0));
+        IncDBSCANCluster cluster = new IncDBSCANCluster(EPS, MIN_PTS,
+                new GridIndex(EPS));
+        for (Point p : points) {
+            cluster.incrementalUpdate(p);
+        }
+        List<Point> remaining = new ArrayList<>(points);
+        Collections.shuffle(remaining, new Random(3));
+        for (int i = 0; i < 700; i++) {
+            cluster.incrementalDelete(remaining.remove(remaining.size() - 1));
+        }
+
+        cluster.compactClusterMapping();
+        assertRemaining(cluster, remaining);
+        int numClusters = cluster.getNumClusters();
+        for (Point p : remaining) {
+            int id = cluster.getClusterId(p);
+            assertTrue(id == Point.NOISE || id < numClusters,
+                    "id " + id + " not compacted");
+        }
+
+        // later inserts keep working on the compacted mapping
+        for (Point p : TestData.copy(TestData.blobs(4, 500, 2, 6, 15.0))) {
+            Point copy = new Point(p.position, 1500 + p.pointIndex, p.label);
+            cluster.incrementalUpdate(copy);
+            remaining.add(copy);
+        }
+        assertRemaining(cluster, remaining);
+    }
+
+    /**
+     * Compare the clusterer with sequential DBSCAN on its remaining points,
+     * renumbered from 0.
+     */
+    private static void assertRemaining(IncDBSCANCluster cluster,
+                                        List<Point> remaining) {
+        List<Point> renumbered = new ArrayList<>(remaining.size());
+        int[] labels = new int[remaining.size()];
+        for (int i = 0; i < remaining.size(); i++) {
+            Point p = remaining.get(i);
+            renumbered.add(new Point(p.position, i, p.label));
+            labels[i] = cluster.getClusterId(p);
+        }
+        int size = 0;
+        for (Point p : cluster.getPoints()) {
+            size++;
+        }
+        assertEquals(remaining.size(), size, "number of clustered points");
+        ClusteringAssert.assertDBSCAN(renumbered, labels, EPS, MIN_PTS);
+    }
+}
@@ -0,0 +1,47 @@
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PagedIncDBSCANClusterTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * With a cache of one or a few tiles nearly every neighborhood query
+     * evicts tiles and reads them back from the spill file.
+     */
+    @Test
+    void matchesSequentialWithEviction() throws IOException {
+        for (int cacheTiles : new int[]{1, 4, 1000}) {
+            for (long seed = 0; seed < 3; seed++) {
+                int d = 2 + (int) (seed % 2);
+                List<Point> points = TestData.blobs(seed, 1500, d, 5, 15.0);
+                int[] labels = new int[points.size()];
+                long[] ids = new long[points.size()];
+                Path spillFile = dir.resolve("spill-" + cacheTiles + "-" +
+                        seed);
+                try (PagedIncDBSCANCluster cluster = new PagedIncDBSCANCluster(
+                        0.6, 4, d, spillFile, cacheTiles)) {
+                    for (Point p : points) {
+                        ids[p.pointIndex] = cluster.incrementalUpdate(
+                                p.position, p.pointIndex, p.label);
+                    }
+                    for (int i = 0; i < points.size(); i++) {
+                        labels[i] = cluster.getClusterIndex(ids[i]);
+                    }
+                    if (cacheTiles < 1000) {
+                        assertTrue(cluster.getStore().getPageReads() > 0,
+                                "no tile was read back");
+                    }
+                }
+                ClusteringAssert.assertDBSCAN(points, labels, 0.6, 4);
+            }
+        }
+    }
+}
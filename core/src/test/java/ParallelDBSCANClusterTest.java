@@ -0,0 +1,34 @@
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ParallelDBSCANClusterTest {
+
+    @Test
+    void matchesSequential() {
+        for (int numThreads : new int[]{1, 2, 4, 8}) {
+            for (long seed = 0; seed < 5; seed++) {
+                List<Point> points = TestData.blobs(seed, 2000,
+                        2 + (int) (seed % 2), 6, 20.0);
+                ParallelDBSCANCluster cluster = new ParallelDBSCANCluster(0.6,
+                        4, numThreads, new GridIndex(0.6));
+                cluster.cluster(points);
+                ClusteringAssert.assertDBSCAN(points,
+                        ClusteringAssert.labels(cluster.pointsToCluster), 0.6,
+                        4);
+            }
+        }
+    }
+
+    @Test
+    void matchesSequentialAtCriticalDensity() {
+        for (long seed = 0; seed < 5; seed++) {
+            List<Point> points = TestData.uniform(seed, 1500, 2, 30.0);
+            ParallelDBSCANCluster cluster = new ParallelDBSCANCluster(1.0, 5,
+                    4);
+            cluster.cluster(points);
+            ClusteringAssert.assertDBSCAN(points,
+                    ClusteringAssert.labels(cluster.pointsToCluster), 1.0, 5);
+        }
+    }
+}
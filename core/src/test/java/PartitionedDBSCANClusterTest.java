@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PartitionedDBSCANClusterTest {
+
+    private static int[] cluster(List<Point> points, double eps, int minPts,
+                                 int numPartitions) throws IOException {
+        try (LoopbackTransport transport = new LoopbackTransport(3)) {
+            PartitionedDBSCANCluster cluster = new PartitionedDBSCANCluster(
+                    eps, minPts, numPartitions, transport);
+            cluster.cluster(points);
+            return ClusteringAssert.labels(cluster.pointsToCluster);
+        }
+    }
+
+    /**
+     * At about minPts expected neighbors, chains of core points often
+     * cross a cut through halo points that are not core locally.
+     */
+    @Test
+    void matchesSequentialAtCriticalDensity() throws IOException {
+        for (long seed = 0; seed < 30; seed++) {
+            List<Point> points = TestData.uniform(seed, 1500, 2, 30.0);
+            int numPartitions = 2 + (int) (seed % 15);
+            ClusteringAssert.assertDBSCAN(points,
+                    cluster(points, 1.0, 5, numPartitions), 1.0, 5);
+        }
+    }
+
+    /**
+     * Data sets where a core-core edge joined two halo points that were
+     * border points of other local clusters, and the merge split the
+     * cluster in two.
+     */
+    @Test
+    void keepsCoreEdgesBetweenHaloPoints() throws IOException {
+        for (long seed : new long[]{163, 246}) {
+            List<Point> points = TestData.uniform(seed, 3000, 2, 42.0);
+            ClusteringAssert.assertDBSCAN(points,
+                    cluster(points, 1.0, 6, 128), 1.0, 6);
+        }
+    }
+
+    @Test
+    void matchesSequentialOnBlobs() throws IOException {
+        for (long seed = 0; seed < 20; seed++) {
+            int d = 2 + (int) (seed % 3);
+            List<Point> points = TestData.blobs(seed, 2000, d, 6, 20.0);
+            ClusteringAssert.assertDBSCAN(points,
+                    cluster(points, 0.6, 4, 8), 0.6, 4);
+        }
+    }
+
+    @Test
+    void singlePartitionAndMorePartitionsThanPoints() throws IOException {
+        List<Point> points = TestData.uniform(7, 50, 2, 5.0);
+        ClusteringAssert.assertDBSCAN(points, cluster(points, 1.0, 3, 1),
+                1.0, 3);
+        ClusteringAssert.assertDBSCAN(points, cluster(points, 1.0, 3, 64),
+                1.0, 3);
+        assertEquals(0, cluster(List.of(), 1.0, 3, 4).length);
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded random point sets for the equivalence tests. Point i has
+ * pointIndex i and a label naming the blob it was drawn from.
+ */
+final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * Uniform points in the cube [0, side)^d.
+     *
+     * @return
+     */
+    static List<Point> uniform(long seed, int n, int d, double side) {
+        Random random = new Random(seed);
+        List<Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double[] position = new double[d];
+            for (int k = 0; k < d; k++) {
+                position[k] = random.nextDouble() * side;
+            }
+            points.add(new Point(position, i, 0));
+        }
+        return points;
+    }
+
+    /**
+     * Gaussian blobs of unit deviation in the cube [0, side)^d, over a
+     * tenth of uniform noise.
+     *
+     * @return
+     */
+    static List<Point> blobs(long seed, int n, int d, int numBlobs,
+                             double side) {
+        Random random = new Random(seed);
+        double[][] centers = new double[numBlobs][d];
+        for (double[] center : centers) {
+            for (int k = 0; k < d; k++) {
+                center[k] = random.nextDouble() * side;
+            }
+        }
+        List<Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double[] position = new double[d];
+            int blob = random.nextInt(numBlobs + 1);
+            for (int k = 0; k < d; k++) {
+                position[k] = blob == numBlobs ? random.nextDouble() * side :
+                        centers[blob][k] + random.nextGaussian();
+            }
+            points.add(new Point(position, i, blob));
+        }
+        return points;
+    }
+
+    /**
+     * Fresh copies of the points, sharing nothing but the coordinates.
+     *
+     * @return
+     */
+    static List<Point> copy(List<Point> points) {
+        List<Point> copies = new ArrayList<>(points.size());
+        for (Point p : points) {
+            copies.add(new Point(p.position.clone(), p.pointIndex, p.label));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,29 @@
+import java.io.IOException;
+
+/**
+ * Receiver of the cluster assignment changes published by an
+ * {@link IngestPipeline}. It is called on the sink thread of the pipeline,
+ * one micro-batch at a time and in insertion order, so it may do blocking
+ * I/O without stalling the clustering.
+ * <p>
+ * A batch lists the points whose cluster changed, the inserted points and
+ * existing points relabelled by the batch, and the clusters united into
+ * another one, whose points move with them without being listed. A view
+ * holding the cluster of every point stays equal to the clusterer if it
+ * applies the point changes of a batch first, then its unions in order.
+ */
+public interface AssignmentSink {
+
+    /**
+     * Publish the changes of one micro-batch.
+     *
+     * @param pointIndices indices of the relabelled points, in the order of
+     *                     the changes; a point may appear more than once
+     * @param clusterIds   new cluster id of each change, or Point.NOISE
+     * @param unitedIds    clusters that were united into another one
+     * @param intoIds      cluster each of them was united into
+     * @throws IOException if publishing failed, which stops the pipeline
+     */
+    void publish(int[] pointIndices, int[] clusterIds, int[] unitedIds,
+                 int[] intoIds) throws IOException;
+}
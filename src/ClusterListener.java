@@ -0,0 +1,150 @@
+/**
+ * Receives events and measurements of an {@link IncDBSCANCluster}. Every
+ * method does nothing by default. Without a listener the clusterer skips
+ * all measurements, including the clock reads.
+ */
+public interface ClusterListener {
+
+    /**
+     * An insert found no UpdSeed_Ins, the new point is noise or a border
+     * point of an existing cluster.
+     *
+     * @param newPoint inserted point
+     */
+    default void seedEmpty(Point newPoint) {
+    }
+
+    /**
+     * Case 1: a region of UpdSeed_Ins held only noise and became a new
+     * cluster.
+     *
+     * @param clusterId id of the new cluster
+     * @param numSeeds  number of seeds of the region
+     */
+    default void clusterCreated(int clusterId, int numSeeds) {
+    }
+
+    /**
+     * Case 2: a region of UpdSeed_Ins was absorbed into one cluster.
+     *
+     * @param clusterId root id of the cluster
+     * @param numSeeds  number of seeds of the region
+     */
+    default void clusterAbsorbed(int clusterId, int numSeeds) {
+    }
+
+    /**
+     * Case 3: a region of UpdSeed_Ins connected several clusters, which
+     * were merged.
+     *
+     * @param mergedClusterId id of the merged cluster
+     * @param numClusters     number of clusters merged
+     * @param numSeeds        number of seeds of the region
+     */
+    default void clustersMerged(int mergedClusterId, int numClusters,
+                                int numSeeds) {
+    }
+
+    /**
+     * A point moved to another cluster, to noise or out of noise. Ids are
+     * root ids at the time of the event. Together with
+     * {@link #clusterCreated}, {@link #clusterSplit} and
+     * {@link #clustersUnited}, these deltas are enough to maintain a view
+     * of the clustering without rescanning it.
+     *
+     * @param point        relabelled point
+     * @param oldClusterId root id of its old cluster, or Point.NOISE
+     * @param newClusterId root id of its new cluster, or Point.NOISE
+     */
+    default void pointAssigned(Point point, int oldClusterId,
+                               int newClusterId) {
+    }
+
+    /**
+     * A point that was noise after an earlier update joined a cluster,
+     * reported right after its {@link #pointAssigned} event.
+     *
+     * @param point     promoted point
+     * @param clusterId root id of its cluster
+     */
+    default void noisePromoted(Point point, int clusterId) {
+    }
+
+    /**
+     * Two clusters were united, the points of the old cluster now belong
+     * to the new one without being relabelled. Case 3 unites every merged
+     * cluster into the surviving root, one event per cluster.
+     *
+     * @param oldClusterId root id that stopped being a root
+     * @param newClusterId root id of the united cluster
+     */
+    default void clustersUnited(int oldClusterId, int newClusterId) {
+    }
+
+    /**
+     * Compaction gave a cluster a new id, the points keep their cluster.
+     * Events come in increasing order of the old ids and a new id is never
+     * above the old one, so applying them one by one never renames a
+     * cluster to the id of another live cluster. The ids of clusters
+     * dropped by the compaction are handed out again to new clusters.
+     *
+     * @param oldClusterId root id before the compaction
+     * @param newClusterId root id after it
+     */
+    default void clusterRenumbered(int oldClusterId, int newClusterId) {
+    }
+
+    /**
+     * A point was deleted, reported after it was moved to noise.
+     *
+     * @param point deleted point
+     */
+    default void pointDeleted(Point point) {
+    }
+
+    /**
+     * A deletion cut a part off a cluster, the part became a new cluster.
+     *
+     * @param clusterId    root id of the split cluster
+     * @param newClusterId id of the part cut off
+     */
+    default void clusterSplit(int clusterId, int newClusterId) {
+    }
+
+    /**
+     * A cluster was expanded from the seeds of a region.
+     *
+     * @param clusterId  id the reached points were labelled with
+     * @param numTouched number of points taken from the expansion queue
+     */
+    default void clusterExpanded(int clusterId, int numTouched) {
+    }
+
+    /**
+     * The root of a cluster id was looked up in the cluster mapping.
+     *
+     * @param pathLength number of parent links followed
+     */
+    default void rootFound(int pathLength) {
+    }
+
+    /**
+     * An insert, of one point or of a batch, completed.
+     *
+     * @param numPoints       number of points inserted
+     * @param numRangeQueries number of eps-range queries run
+     * @param nanos           elapsed time
+     */
+    default void insertCompleted(int numPoints, int numRangeQueries,
+                                 long nanos) {
+    }
+
+    /**
+     * A deletion completed.
+     *
+     * @param numRangeQueries number of eps-range queries run
+     * @param nanos           elapsed time
+     */
+    default void deleteCompleted(int numRangeQueries, long nanos) {
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Listener collecting counters and histograms of an
+ * {@link IncDBSCANCluster}.
+ */
+public class ClusterMetrics implements ClusterListener {
+
+    private long numInserts;  // inserted points
+
+    private long numDeletes;  // deleted points
+
+    private long numSeedEmpty;  // inserts without UpdSeed_Ins
+
+    private long numCreated;  // clusters created by case 1
+
+    private long numAbsorbed;  // regions absorbed by case 2
+
+    private long numMerges;  // merges by case 3
+
+    private long numMergedClusters;  // clusters merged by case 3
+
+    private long numSplits;  // clusters cut off by deletions
+
+    // range queries per insert or batch insert
+    private final Histogram rangeQueriesPerInsert = new Histogram();
+
+    private final Histogram rangeQueriesPerDelete = new Histogram();
+
+    // points taken from the queue by each expandCluster
+    private final Histogram expandTouched = new Histogram();
+
+    // parent links followed by each root lookup
+    private final Histogram rootPathLength = new Histogram();
+
+    private final Histogram insertNanos = new Histogram();
+
+    private final Histogram deleteNanos = new Histogram();
+
+    @Override
+    public void seedEmpty(Point newPoint) {
+        numSeedEmpty++;
+    }
+
+    @Override
+    public void clusterCreated(int clusterId, int numSeeds) {
+        numCreated++;
+    }
+
+    @Override
+    public void clusterAbsorbed(int clusterId, int numSeeds) {
+        numAbsorbed++;
+    }
+
+    @Override
+    public void clustersMerged(int mergedClusterId, int numClusters,
+                               int numSeeds) {
+        numMerges++;
+        numMergedClusters += numClusters;
+    }
+
+    @Override
+    public void clusterSplit(int clusterId, int newClusterId) {
+        numSplits++;
+    }
+
+    @Override
+    public void clusterExpanded(int clusterId, int numTouched) {
+        expandTouched.record(numTouched);
+    }
+
+    @Override
+    public void rootFound(int pathLength) {
+        rootPathLength.record(pathLength);
+    }
+
+    @Override
+    public void insertCompleted(int numPoints, int numRangeQueries,
+                                long nanos) {
+        numInserts += numPoints;
+        rangeQueriesPerInsert.record(numRangeQueries);
+        insertNanos.record(nanos);
+    }
+
+    @Override
+    public void deleteCompleted(int numRangeQueries, long nanos) {
+        numDeletes++;
+        rangeQueriesPerDelete.record(numRangeQueries);
+        deleteNanos.record(nanos);
+    }
+
+    public long getNumInserts() {
+        return numInserts;
+    }
+
+    public long getNumDeletes() {
+        return numDeletes;
+    }
+
+    public long getNumSeedEmpty() {
+        return numSeedEmpty;
+    }
+
+    public long getNumCreated() {
+        return numCreated;
+    }
+
+    public long getNumAbsorbed() {
+        return numAbsorbed;
+    }
+
+    public long getNumMerges() {
+        return numMerges;
+    }
+
+    public long getNumMergedClusters() {
+        return numMergedClusters;
+    }
+
+    public long getNumSplits() {
+        return numSplits;
+    }
+
+    public Histogram getRangeQueriesPerInsert() {
+        return rangeQueriesPerInsert;
+    }
+
+    public Histogram getRangeQueriesPerDelete() {
+        return rangeQueriesPerDelete;
+    }
+
+    public Histogram getExpandTouched() {
+        return expandTouched;
+    }
+
+    public Histogram getRootPathLength() {
+        return rootPathLength;
+    }
+
+    public Histogram getInsertNanos() {
+        return insertNanos;
+    }
+
+    public Histogram getDeleteNanos() {
+        return deleteNanos;
+    }
+
+    public void reset() {
+        numInserts = 0;
+        numDeletes = 0;
+        numSeedEmpty = 0;
+        numCreated = 0;
+        numAbsorbed = 0;
+        numMerges = 0;
+        numMergedClusters = 0;
+        numSplits = 0;
+        rangeQueriesPerInsert.reset();
+        rangeQueriesPerDelete.reset();
+        expandTouched.reset();
+        rootPathLength.reset();
+        insertNanos.reset();
+        deleteNanos.reset();
+    }
+
+    public String toString() {
+        return "inserts: " + numInserts + ", deletes: " + numDeletes +
+                "\nseed empty: " + numSeedEmpty + ", created: " + numCreated +
+                ", absorbed: " + numAbsorbed + ", merges: " + numMerges +
+                " (" + numMergedClusters + " clusters), splits: " +
+                numSplits +
+                "\nrange queries per insert: " + rangeQueriesPerInsert +
+                "\nrange queries per delete: " + rangeQueriesPerDelete +
+                "\nexpand touched: " + expandTouched +
+                "\nroot path length: " + rootPathLength +
+                "\ninsert ns: " + insertNanos +
+                "\ndelete ns: " + deleteNanos;
+    }
+}
@@ -0,0 +1,171 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Binary snapshot of an {@link IncDBSCANCluster}. Big-endian layout:
+ * <pre>
+ * int    magic 'IDBS', int version
+ * double eps, int minPts
+ * int    dimension d, int number of points n, int number of cluster ids m
+ * double[n] coordinates, one column per dimension
+ * int[n]    pointIndex, label, clusterIndex, epsNbrNum columns
+ * int[m]    parents of the cluster ids 0 .. m - 1
+ * </pre>
+ * Restoring maps the columns of the file in chunks and rebuilds the points
+ * on the heap, no neighbor query is run.
+ */
+final class ClusterSnapshot {
+
+    private static final int MAGIC = 0x49444253;  // "IDBS"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+
+    private static final int CHUNK = 1 << 26;  // values mapped at once, a
+    // mapping cannot exceed Integer.MAX_VALUE bytes
+
+    private ClusterSnapshot() {
+    }
+
+    static void write(Path file, double eps, int minPts, List<Point> points,
+                      DisjointSet clusterMapping) throws IOException {
+        int n = points.size();
+        int d = n == 0 ? 0 : points.get(0).position.length;
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file),
+                        1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(eps);
+            out.writeInt(minPts);
+            out.writeInt(d);
+            out.writeInt(n);
+            out.writeInt(clusterMapping.size());
+
+            for (int k = 0; k < d; k++) {
+                for (Point p : points) {
+                    out.writeDouble(p.position[k]);
+                }
+            }
+            for (Point p : points) {
+                out.writeInt(p.pointIndex);
+            }
+            for (Point p : points) {
+                out.writeInt(p.label);
+            }
+            for (Point p : points) {
+                out.writeInt(p.clusterIndex);
+            }
+            for (Point p : points) {
+                out.writeInt(p.epsNbrNum);
+            }
+            for (int id = 0; id < clusterMapping.size(); id++) {
+                out.writeInt(clusterMapping.getParent(id));
+            }
+        }
+    }
+
+    static IncDBSCANCluster read(Path file, NeighborIndex index)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a clustering snapshot: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a clustering snapshot: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " +
+                        version);
+            }
+            double eps = header.getDouble();
+            int minPts = header.getInt();
+            int d = header.getInt();
+            int n = header.getInt();
+            int m = header.getInt();
+            if (d < 0 || n < 0 || m < 0) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+            long expected = HEADER_BYTES + 8L * d * n + 16L * n + 4L * m;
+            if (channel.size() != expected) {
+                throw new IOException("Truncated snapshot: " + file);
+            }
+
+            // read the columns back into row-major positions
+            long offset = HEADER_BYTES;
+            double[][] positions = new double[n][d];
+            for (int k = 0; k < d; k++) {
+                for (int first = 0; first < n; first += CHUNK) {
+                    int count = Math.min(CHUNK, n - first);
+                    DoubleBuffer column = channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            offset + 8L * first, 8L * count).asDoubleBuffer();
+                    for (int i = 0; i < count; i++) {
+                        positions[first + i][k] = column.get(i);
+                    }
+                }
+                offset += 8L * n;
+            }
+            int[] pointIndex = readInts(channel, offset, n);
+            int[] label = readInts(channel, offset + 4L * n, n);
+            int[] clusterIndex = readInts(channel, offset + 8L * n, n);
+            int[] epsNbrNum = readInts(channel, offset + 12L * n, n);
+            offset += 16L * n;
+            int[] parents = readInts(channel, offset, m);
+            DisjointSet clusterMapping;
+            try {
+                clusterMapping = DisjointSet.of(parents);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt snapshot: " + file, e);
+            }
+            for (int i = 0; i < n; i++) {
+                int id = clusterIndex[i];
+                if (id != Point.NOISE && (id < 0 || id >= m)) {
+                    throw new IOException("Corrupt snapshot: cluster id " +
+                            id + " of point " + i + " out of range");
+                }
+            }
+
+            IncDBSCANCluster cluster = new IncDBSCANCluster(eps, minPts,
+                    index);
+            for (int i = 0; i < n; i++) {
+                Point p = new Point(positions[i], pointIndex[i], label[i]);
+                p.clusterIndex = clusterIndex[i];
+                p.epsNbrNum = epsNbrNum[i];
+                p.visited = true;
+                index.insert(p);
+            }
+            cluster.restoreState(clusterMapping);
+            return cluster;
+        }
+    }
+
+    /**
+     * Read an int column, mapping at most CHUNK values at a time.
+     *
+     * @return
+     */
+    private static int[] readInts(FileChannel channel, long offset,
+                                  int count) throws IOException {
+        int[] values = new int[count];
+        for (int first = 0; first < count; first += CHUNK) {
+            int length = Math.min(CHUNK, count - first);
+            channel.map(FileChannel.MapMode.READ_ONLY, offset + 4L * first,
+                    4L * length).asIntBuffer().get(values, first, length);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,270 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Summary of one cluster of an {@link IncDBSCANCluster}, kept up to date by
+ * every insert, delete, merge and split: member, core and border counts,
+ * coordinate sums for the centroid, the bounding box, and the members
+ * themselves, chained through the points. The object is live, reading it
+ * while the clusterer is updated by another thread is not safe.
+ */
+public class ClusterStats implements Iterable<Point> {
+
+    private int id;  // root cluster id
+
+    private int size;  // number of members
+
+    private int numCore;  // members that are core points
+
+    private double[] sum;  // coordinate sums of the members
+
+    private double[] min;  // lower corner of the bounding box
+
+    private double[] max;  // upper corner of the bounding box
+
+    private boolean boxStale;  // a member on the box boundary was removed
+
+    private Point head;  // first member
+
+    private Point tail;  // last member
+
+    ClusterStats(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Get the id of the cluster, the root id it is currently known by.
+     *
+     * @return
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getNumCore() {
+        return numCore;
+    }
+
+    public int getNumBorder() {
+        return size - numCore;
+    }
+
+    /**
+     * Get the mean position of the members.
+     *
+     * @return new array, or null if the cluster is empty
+     */
+    public double[] getCentroid() {
+        if (size == 0) {
+            return null;
+        }
+        double[] centroid = new double[sum.length];
+        for (int k = 0; k < sum.length; k++) {
+            centroid[k] = sum[k] / size;
+        }
+        return centroid;
+    }
+
+    /**
+     * Get the lower corner of the bounding box of the members.
+     *
+     * @return new array, or null if the cluster is empty
+     */
+    public double[] getMin() {
+        if (size == 0) {
+            return null;
+        }
+        refreshBox();
+        return min.clone();
+    }
+
+    /**
+     * Get the upper corner of the bounding box of the members.
+     *
+     * @return new array, or null if the cluster is empty
+     */
+    public double[] getMax() {
+        if (size == 0) {
+            return null;
+        }
+        refreshBox();
+        return max.clone();
+    }
+
+    /**
+     * Iterate over the members, in no particular order, without scanning
+     * the other points.
+     *
+     * @return
+     */
+    @Override
+    public Iterator<Point> iterator() {
+        return new Iterator<Point>() {
+
+            private Point next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Point next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Point p = next;
+                next = p.nextMember;
+                return p;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "Cluster " + id + ": size " + size + ", core " + numCore +
+                ", border " + getNumBorder() + ", centroid " +
+                Arrays.toString(getCentroid());
+    }
+
+    void add(Point p, boolean core) {
+        double[] position = p.position;
+        if (sum == null) {
+            sum = new double[position.length];
+            min = position.clone();
+            max = position.clone();
+        } else if (size == 0) {
+            System.arraycopy(position, 0, min, 0, position.length);
+            System.arraycopy(position, 0, max, 0, position.length);
+            boxStale = false;
+        }
+        for (int k = 0; k < position.length; k++) {
+            sum[k] += position[k];
+            if (position[k] < min[k]) {
+                min[k] = position[k];
+            } else if (position[k] > max[k]) {
+                max[k] = position[k];
+            }
+        }
+
+        p.prevMember = null;
+        p.nextMember = head;
+        if (head != null) {
+            head.prevMember = p;
+        } else {
+            tail = p;
+        }
+        head = p;
+        size++;
+        if (core) {
+            numCore++;
+        }
+    }
+
+    void remove(Point p, boolean core) {
+        double[] position = p.position;
+        for (int k = 0; k < position.length; k++) {
+            sum[k] -= position[k];
+            if (position[k] == min[k] || position[k] == max[k]) {
+                boxStale = true;
+            }
+        }
+
+        if (p.prevMember != null) {
+            p.prevMember.nextMember = p.nextMember;
+        } else {
+            head = p.nextMember;
+        }
+        if (p.nextMember != null) {
+            p.nextMember.prevMember = p.prevMember;
+        } else {
+            tail = p.prevMember;
+        }
+        p.prevMember = null;
+        p.nextMember = null;
+        size--;
+        if (core) {
+            numCore--;
+        }
+        if (size == 0) {
+            // drop the rounding error of the sums
+            Arrays.fill(sum, 0.0);
+        }
+    }
+
+    /**
+     * A member became a core point, or stopped being one.
+     */
+    void coreChanged(boolean core) {
+        numCore += core ? 1 : -1;
+    }
+
+    /**
+     * Take over all members of {@code other}, which is left empty.
+     */
+    void merge(ClusterStats other) {
+        if (other.size == 0) {
+            return;
+        }
+        if (size == 0) {
+            sum = other.sum;
+            min = other.min;
+            max = other.max;
+            boxStale = other.boxStale;
+        } else {
+            for (int k = 0; k < sum.length; k++) {
+                sum[k] += other.sum[k];
+                min[k] = Math.min(min[k], other.min[k]);
+                max[k] = Math.max(max[k], other.max[k]);
+            }
+            boxStale |= other.boxStale;
+        }
+
+        // splice the other member list in front of this one
+        other.tail.nextMember = head;
+        if (head != null) {
+            head.prevMember = other.tail;
+        } else {
+            tail = other.tail;
+        }
+        head = other.head;
+        size += other.size;
+        numCore += other.numCore;
+
+        other.size = 0;
+        other.numCore = 0;
+        other.head = null;
+        other.tail = null;
+        other.sum = null;
+        other.min = null;
+        other.max = null;
+    }
+
+    /**
+     * Recompute the bounding box from the members after removals.
+     */
+    private void refreshBox() {
+        if (!boxStale) {
+            return;
+        }
+        Point p = head;
+        System.arraycopy(p.position, 0, min, 0, min.length);
+        System.arraycopy(p.position, 0, max, 0, max.length);
+        for (p = p.nextMember; p != null; p = p.nextMember) {
+            for (int k = 0; k < min.length; k++) {
+                min[k] = Math.min(min[k], p.position[k]);
+                max[k] = Math.max(max[k], p.position[k]);
+            }
+        }
+        boxStale = false;
+    }
+}
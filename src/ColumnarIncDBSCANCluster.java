@@ -0,0 +1,301 @@
+import java.util.Arrays;
+
+/**
+ * Incremental DBSCAN clusterer on a columnar {@link PointStore}.
+ * Same insertion algorithm as {@link IncDBSCANCluster}, but points are int
+ * ids, per-point state lives in primitive arrays and clusters are merged in
+ * an int-based {@link DisjointSet}. Scratch lists are reused between
+ * inserts.
+ */
+public class ColumnarIncDBSCANCluster {
+
+    private final PointStore store;   // data warehouse storing all the points
+
+    private final StoreGridIndex index;  // eps-grid over the store
+
+    private final double eps;  // maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // minimum number of points needed for a cluster
+
+    final DisjointSet clusterMapping;  // cluster parent tree
+
+    private int cntOfNbrSearch;  // number of "getEpsNeighbors" operations
+    // per incrementally update
+
+    // scratch space reused by every insert
+    private final IntList neighbors = new IntList();  // of the new point
+
+    private final IntList candidates = new IntList();  // q' points
+
+    private final IntList queryBuffer = new IntList();
+
+    private final IntList updateSeed = new IntList();  // UpdSeed_Ins
+
+    private final IntList seedParent = new IntList();  // union-find on seeds
+
+    private final IntList regionNext = new IntList();  // seeds of a region
+
+    private final IntList expandQueue = new IntList();
+
+    private int[] seedSlot = new int[16];  // position of a point in seeds
+
+    private int[] seedStamp = new int[16];  // insert that set seedSlot
+
+    private int[] clusterSlot = new int[16];  // first seed of a cluster
+
+    private int[] clusterStamp = new int[16];  // insert that set clusterSlot
+
+    private int[] regionHead = new int[16];  // first seed of each region
+
+    private int stamp;  // id of the current insert
+
+    public ColumnarIncDBSCANCluster(final double eps, final int minPts,
+                                    final int d) {
+        if (eps <= 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param must be " +
+                    "positive");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.store = new PointStore(d);
+        this.index = new StoreGridIndex(store, eps);
+        this.clusterMapping = new DisjointSet();
+        cntOfNbrSearch = 0;
+        stamp = 0;
+    }
+
+    /**
+     * Incrementally update with a new point.
+     *
+     * @param position   coordinates
+     * @param pointIndex point index
+     * @param label      true cluster label
+     * @return id of the new point in the store
+     */
+    public int incrementalUpdate(double[] position, int pointIndex,
+                                 int label) {
+        int newId = store.add(position, pointIndex, label);
+        index.insert(newId);
+        cntOfNbrSearch = 0;
+        stamp++;
+        ensureCapacity();
+
+        // candidates contains q' points.
+        candidates.clear();
+        getEpsNeighbors(newId, neighbors);
+        for (int i = 0; i < neighbors.size(); i++) {
+            int nbr = neighbors.get(i);
+            if (nbr == newId) {
+                store.epsNbrNum[newId] = neighbors.size();
+                if (store.epsNbrNum[newId] >= minPts) {
+                    candidates.add(newId);
+                }
+            } else {
+                store.epsNbrNum[nbr]++;
+                if (store.epsNbrNum[nbr] == minPts) {
+                    candidates.add(nbr);
+                }
+            }
+        }
+
+        // find UpdSeed_Ins, split into density-connected regions
+        updateSeed.clear();
+        seedParent.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            int q_Prime = candidates.get(i);
+            IntList q_Prime_Neighbors = neighbors;
+            if (q_Prime != newId) {
+                getEpsNeighbors(q_Prime, queryBuffer);
+                q_Prime_Neighbors = queryBuffer;
+            }
+            int q_PrimeSlot = addSeed(q_Prime);
+            for (int j = 0; j < q_Prime_Neighbors.size(); j++) {
+                int q = q_Prime_Neighbors.get(j);
+                if (store.epsNbrNum[q] >= minPts) {
+                    unionSeeds(q_PrimeSlot, addSeed(q));
+                }
+            }
+        }
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            int seed = updateSeed.get(slot);
+            if (store.clusterIndex[seed] != Point.NOISE) {
+                int root = clusterMapping.find(store.clusterIndex[seed]);
+                if (clusterStamp[root] == stamp) {
+                    unionSeeds(clusterSlot[root], slot);
+                } else {
+                    clusterStamp[root] = stamp;
+                    clusterSlot[root] = slot;
+                }
+            }
+        }
+
+        // chain the seeds of each region, then update region by region
+        regionNext.clear();
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            regionHead[slot] = -1;
+            regionNext.add(-1);
+        }
+        for (int slot = updateSeed.size() - 1; slot >= 0; slot--) {
+            int root = findSeedRoot(slot);
+            regionNext.set(slot, regionHead[root]);
+            regionHead[root] = slot;
+        }
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            if (findSeedRoot(slot) == slot) {
+                updateRegion(regionHead[slot]);
+            }
+        }
+
+        // p is a border point of an existing core point, or noise
+        if (store.clusterIndex[newId] == Point.NOISE) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                int nbr = neighbors.get(i);
+                if (store.epsNbrNum[nbr] >= minPts) {
+                    store.clusterIndex[newId] = store.clusterIndex[nbr];
+                    clusterMapping.addMembers(store.clusterIndex[nbr], 1);
+                    break;
+                }
+            }
+        }
+        return newId;
+    }
+
+    /**
+     * Get the root cluster id of a stored point.
+     *
+     * @param id
+     * @return cluster id, or Point.NOISE
+     */
+    public int getClusterIndex(int id) {
+        int clusterIndex = store.clusterIndex[id];
+        return clusterIndex == Point.NOISE ? Point.NOISE :
+                clusterMapping.find(clusterIndex);
+    }
+
+    /**
+     * Get the number of clusters holding at least one point.
+     *
+     * @return
+     */
+    public int getNumClusters() {
+        return clusterMapping.numLive();
+    }
+
+    /**
+     * Get the point store.
+     *
+     * @return
+     */
+    public PointStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the number of neighbor search operations.
+     *
+     * @return
+     */
+    public int getCntOfNbrSearch() {
+        return cntOfNbrSearch;
+    }
+
+    /**
+     * Update the clustering of the region whose seeds are chained from
+     * {@code head}.
+     */
+    private void updateRegion(int head) {
+        // merge the clusters of the seeds, or create a new one
+        int clusterId = Point.NOISE;
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            int seed = updateSeed.get(slot);
+            if (store.clusterIndex[seed] != Point.NOISE) {
+                clusterId = clusterId == Point.NOISE ?
+                        clusterMapping.find(store.clusterIndex[seed]) :
+                        clusterMapping.union(clusterId,
+                                store.clusterIndex[seed]);
+            }
+        }
+        if (clusterId == Point.NOISE) {
+            clusterId = clusterMapping.makeSet();
+        }
+
+        // expand the cluster over all density-reachable noise points
+        expandQueue.clear();
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            getEpsNeighbors(updateSeed.get(slot), queryBuffer);
+            for (int i = 0; i < queryBuffer.size(); i++) {
+                expandQueue.add(queryBuffer.get(i));
+            }
+        }
+        for (int index = 0; index < expandQueue.size(); index++) {
+            int current = expandQueue.get(index);
+            if (store.clusterIndex[current] == Point.NOISE) {
+                store.clusterIndex[current] = clusterId;
+                clusterMapping.addMembers(clusterId, 1);
+                if (getEpsNeighbors(current, queryBuffer) >= minPts) {
+                    for (int i = 0; i < queryBuffer.size(); i++) {
+                        int currentNbr = queryBuffer.get(i);
+                        if (store.clusterIndex[currentNbr] == Point.NOISE) {
+                            expandQueue.add(currentNbr);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int addSeed(int id) {
+        if (seedStamp[id] == stamp) {
+            return seedSlot[id];
+        }
+        seedStamp[id] = stamp;
+        seedSlot[id] = updateSeed.size();
+        updateSeed.add(id);
+        seedParent.add(seedSlot[id]);
+        if (regionHead.length < updateSeed.size()) {
+            regionHead = Arrays.copyOf(regionHead, regionHead.length * 2);
+        }
+        return seedSlot[id];
+    }
+
+    private int findSeedRoot(int slot) {
+        while (seedParent.get(slot) != slot) {
+            seedParent.set(slot, seedParent.get(seedParent.get(slot)));
+            slot = seedParent.get(slot);
+        }
+        return slot;
+    }
+
+    private void unionSeeds(int a, int b) {
+        int rootA = findSeedRoot(a);
+        int rootB = findSeedRoot(b);
+        if (rootA != rootB) {
+            seedParent.set(rootB, rootA);
+        }
+    }
+
+    /**
+     * Grow the per-point and per-cluster scratch arrays.
+     */
+    private void ensureCapacity() {
+        if (seedSlot.length < store.size()) {
+            int capacity = Math.max(store.size(), seedSlot.length * 2);
+            seedSlot = Arrays.copyOf(seedSlot, capacity);
+            seedStamp = Arrays.copyOf(seedStamp, capacity);
+        }
+        // an insert creates at most one cluster per new core point
+        int numClusters = clusterMapping.size() + store.size();
+        if (clusterSlot.length < numClusters) {
+            int capacity = Math.max(numClusters, clusterSlot.length * 2);
+            clusterSlot = Arrays.copyOf(clusterSlot, capacity);
+            clusterStamp = Arrays.copyOf(clusterStamp, capacity);
+        }
+    }
+
+    private int getEpsNeighbors(int id, IntList out) {
+        cntOfNbrSearch++;
+        return index.getNeighbors(id, eps, out);
+    }
+}
@@ -0,0 +1,117 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary columnar input format, much faster to load than text. Big-endian
+ * layout:
+ * <pre>
+ * int       magic 'IDBP', int version
+ * int       dimension d, int number of points n
+ * double[n] coordinates, one column per dimension
+ * int[n]    pointIndex, label columns
+ * </pre>
+ */
+public final class ColumnarPointFile {
+
+    private static final int MAGIC = 0x49444250;  // "IDBP"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+
+    private ColumnarPointFile() {
+    }
+
+    /**
+     * Write the points of a store, e.g. converted once from a text file by
+     * {@link CsvLoader#loadStore}.
+     *
+     * @param file  output file, overwritten if it exists
+     * @param store points to write
+     * @throws IOException
+     */
+    public static void write(Path file, PointStore store) throws IOException {
+        int n = store.size();
+        int d = store.dimension();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file),
+                        1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(d);
+            out.writeInt(n);
+            for (int k = 0; k < d; k++) {
+                for (int i = 0; i < n; i++) {
+                    out.writeDouble(store.getCoord(i, k));
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(store.pointIndex[i]);
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(store.label[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a file into a new store, every point is noise.
+     *
+     * @param file input file
+     * @return
+     * @throws IOException if the file is not in this format
+     */
+    public static PointStore read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a columnar point file: " + file);
+            }
+            MappedByteBuffer header = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a columnar point file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported point file version " +
+                        version);
+            }
+            int d = header.getInt();
+            int n = header.getInt();
+            if (channel.size() != HEADER_BYTES + 8L * d * n + 8L * n) {
+                throw new IOException("Truncated point file: " + file);
+            }
+
+            PointStore store = new PointStore(d, Math.max(1, n));
+            long offset = HEADER_BYTES;
+            DoubleBuffer[] columns = new DoubleBuffer[d];
+            for (int k = 0; k < d; k++) {
+                columns[k] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        offset, 8L * n).asDoubleBuffer();
+                offset += 8L * n;
+            }
+            IntBuffer pointIndex = channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset, 4L * n).asIntBuffer();
+            IntBuffer label = channel.map(FileChannel.MapMode.READ_ONLY,
+                    offset + 4L * n, 4L * n).asIntBuffer();
+
+            double[] pos = new double[d];
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < d; k++) {
+                    pos[k] = columns[k].get(i);
+                }
+                store.add(pos, pointIndex.get(i), label.get(i));
+            }
+            return store;
+        }
+    }
+}
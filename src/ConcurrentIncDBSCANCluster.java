@@ -0,0 +1,382 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe incremental DBSCAN clusterer.
+ * Points live in an eps-grid whose cells are guarded by striped locks. An
+ * insert locks every cell it may read or write, in a fixed order, so
+ * inserts in areas far enough apart run at the same time. Clusters are
+ * merged through a lock-free union-find.
+ */
+public class ConcurrentIncDBSCANCluster {
+
+    // An insert reads points up to 3 eps away from the new point (the
+    // neighbors of UpdSeed_Ins) and queries their neighborhoods, which
+    // covers grid cells up to REGION_CELLS cells away from its own cell.
+    private static final int REGION_CELLS = 4;
+
+    // side of a lock block, in grid cells
+    private static final int BLOCK_CELLS = 2 * REGION_CELLS + 1;
+
+    // cluster ids per block of the parent array, as a power of two
+    private static final int ID_BLOCK_BITS = 16;
+
+    private final GridIndex points;   // data warehouse storing all the points
+
+    private final double eps;  // maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // minimum number of points needed for a cluster
+
+    private final ReentrantLock[] stripes;  // locks of the grid blocks
+
+    private final AtomicInteger clusterGlobalID; // cluster unique ID, start
+    // from 0
+
+    private final AtomicReferenceArray<AtomicIntegerArray> clusterMapping;
+    // cluster parent tree, in blocks of ids allocated on first use, so
+    // growing it never copies parents that other threads swap
+
+    public ConcurrentIncDBSCANCluster(final double eps, final int minPts,
+                                      final int numStripes) {
+        if (eps <= 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param must be " +
+                    "positive");
+        }
+        if (numStripes < 1) {
+            throw new IllegalArgumentException("Number of lock stripes " +
+                    "must be positive");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.points = new GridIndex(eps, StandardMetric.EUCLIDEAN, true);
+        this.stripes = new ReentrantLock[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.clusterGlobalID = new AtomicInteger();
+        this.clusterMapping = new AtomicReferenceArray<>(
+                1 << (31 - ID_BLOCK_BITS));
+    }
+
+    /**
+     * Incrementally update with a new point, may be called from several
+     * threads at once.
+     *
+     * @param newPoint
+     */
+    public void incrementalUpdate(Point newPoint) {
+        int[] locked = regionStripes(newPoint);
+        for (int stripe : locked) {
+            stripes[stripe].lock();
+        }
+        try {
+            insert(newPoint);
+        } finally {
+            for (int i = locked.length - 1; i >= 0; i--) {
+                stripes[locked[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * Get the number of clustered points.
+     *
+     * @return
+     */
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Find root of the tree given a cluster index, with path halving.
+     *
+     * @param id
+     * @return
+     */
+    int findRootClusterID(int id) {
+        while (true) {
+            int parent = parents(id).get(slot(id));
+            if (parent == id) {
+                return id;
+            }
+            int grandParent = parents(parent).get(slot(parent));
+            if (parent != grandParent) {
+                parents(id).compareAndSet(slot(id), parent, grandParent);
+            }
+            id = parent;
+        }
+    }
+
+    /**
+     * Merge two clusters, the root with the larger id is linked under the
+     * other one.
+     *
+     * @return root of the merged cluster
+     */
+    private int unionClusters(int a, int b) {
+        while (true) {
+            a = findRootClusterID(a);
+            b = findRootClusterID(b);
+            if (a == b) {
+                return a;
+            }
+            int small = Math.min(a, b);
+            int large = Math.max(a, b);
+            // fails if another thread linked the root meanwhile
+            if (parents(large).compareAndSet(slot(large), large, small)) {
+                return small;
+            }
+        }
+    }
+
+    private int newClusterID() {
+        int id = clusterGlobalID.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("Out of cluster ids");
+        }
+        int block = id >>> ID_BLOCK_BITS;
+        if (clusterMapping.get(block) == null) {
+            clusterMapping.compareAndSet(block, null,
+                    new AtomicIntegerArray(1 << ID_BLOCK_BITS));
+        }
+        parents(id).set(slot(id), id);
+        return id;
+    }
+
+    /**
+     * Block of the parent array holding a cluster id.
+     */
+    private AtomicIntegerArray parents(int id) {
+        return clusterMapping.get(id >>> ID_BLOCK_BITS);
+    }
+
+    private static int slot(int id) {
+        return id & ((1 << ID_BLOCK_BITS) - 1);
+    }
+
+    /**
+     * Sorted stripes covering every lock block within REGION_CELLS grid
+     * cells of the new point.
+     */
+    private int[] regionStripes(Point newPoint) {
+        int[] cell = points.cellCoords(newPoint.position);
+        int d = cell.length;
+        int[] lowBlock = new int[d];
+        int[] highBlock = new int[d];
+        double numBlocks = 1.0;
+        for (int i = 0; i < d; i++) {
+            lowBlock[i] = Math.floorDiv(cell[i] - REGION_CELLS, BLOCK_CELLS);
+            highBlock[i] = Math.floorDiv(cell[i] + REGION_CELLS, BLOCK_CELLS);
+            numBlocks *= highBlock[i] - lowBlock[i] + 1;
+        }
+
+        boolean[] used = new boolean[stripes.length];
+        if (numBlocks >= stripes.length) {
+            // the region covers too many blocks, take every lock
+            Arrays.fill(used, true);
+        } else {
+            int[] block = lowBlock.clone();
+            while (true) {
+                used[Math.floorMod(Arrays.hashCode(block), stripes.length)] =
+                        true;
+                int i = 0;
+                while (i < d && block[i] == highBlock[i]) {
+                    block[i] = lowBlock[i];
+                    i++;
+                }
+                if (i == d) {
+                    break;
+                }
+                block[i]++;
+            }
+        }
+
+        int numUsed = 0;
+        for (boolean u : used) {
+            if (u) {
+                numUsed++;
+            }
+        }
+        int[] locked = new int[numUsed];
+        int k = 0;
+        for (int i = 0; i < used.length; i++) {
+            if (used[i]) {
+                locked[k++] = i;
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * Insert a point while its region is locked, see
+     * {@link IncDBSCANCluster#incrementalUpdate(Point)}.
+     */
+    private void insert(Point newPoint) {
+        points.insert(newPoint);
+
+        // candidates contains q' points.
+        List<Point> candidates = new ArrayList<>();
+        List<Point> neighbors = getEpsNeighbors(newPoint);
+        for (Point nbr : neighbors) {
+            if (nbr == newPoint) {
+                // add number of eps-neighbors for new point
+                newPoint.epsNbrNum = neighbors.size();
+                if (newPoint.epsNbrNum >= minPts) {
+                    candidates.add(newPoint);
+                }
+            } else {
+                // update number of neighbors.
+                nbr.epsNbrNum++;
+                // q' is core point in {D union p} but not in D.
+                if (nbr.epsNbrNum == minPts) {
+                    candidates.add(nbr);
+                }
+            }
+        }
+
+        // find UpdSeed_Ins, grouped into density-connected regions with a
+        // local union-find over the seeds
+        List<Point> updateSeed = new ArrayList<>();
+        HashMap<Point, Integer> seedIndex = new HashMap<>();
+        List<Integer> parent = new ArrayList<>();
+        for (Point q_Prime : candidates) {
+            List<Point> q_Prime_Neighbors = q_Prime == newPoint ?
+                    neighbors : getEpsNeighbors(q_Prime);
+            int q_PrimeIndex = addSeed(q_Prime, updateSeed, seedIndex,
+                    parent);
+            for (Point q : q_Prime_Neighbors) {
+                if (q.epsNbrNum >= minPts) {
+                    unionSeeds(parent, q_PrimeIndex,
+                            addSeed(q, updateSeed, seedIndex, parent));
+                }
+            }
+        }
+        HashMap<Integer, Integer> clusterSeed = new HashMap<>();
+        for (int i = 0; i < updateSeed.size(); i++) {
+            Point seed = updateSeed.get(i);
+            if (seed.clusterIndex != Point.NOISE) {
+                Integer other = clusterSeed.putIfAbsent(
+                        findRootClusterID(seed.clusterIndex), i);
+                if (other != null) {
+                    unionSeeds(parent, other, i);
+                }
+            }
+        }
+        HashMap<Integer, List<Point>> regions = new HashMap<>();
+        for (int i = 0; i < updateSeed.size(); i++) {
+            int root = findSeedRoot(parent, i);
+            if (!regions.containsKey(root)) {
+                regions.put(root, new ArrayList<>());
+            }
+            regions.get(root).add(updateSeed.get(i));
+        }
+
+        for (List<Point> region : regions.values()) {
+            // clusters of the seeds are merged, a region of noise seeds
+            // forms a new cluster
+            HashSet<Integer> clusterIdSet = new HashSet<>();
+            for (Point seed : region) {
+                if (seed.clusterIndex != Point.NOISE) {
+                    clusterIdSet.add(findRootClusterID(seed.clusterIndex));
+                }
+            }
+            int clusterId;
+            if (clusterIdSet.isEmpty()) {
+                clusterId = newClusterID();
+            } else {
+                clusterId = Point.NOISE;
+                for (int id : clusterIdSet) {
+                    clusterId = clusterId == Point.NOISE ? id :
+                            unionClusters(clusterId, id);
+                }
+            }
+            expandCluster(region, clusterId);
+        }
+
+        // p is a border point of an existing core point, or noise
+        if (newPoint.clusterIndex == Point.NOISE) {
+            for (Point nbr : neighbors) {
+                if (nbr.epsNbrNum >= minPts) {
+                    newPoint.clusterIndex = nbr.clusterIndex;
+                    break;
+                }
+            }
+        }
+        newPoint.visited = true;
+    }
+
+    private static int addSeed(Point seed, List<Point> updateSeed,
+                               HashMap<Point, Integer> seedIndex,
+                               List<Integer> parent) {
+        Integer index = seedIndex.get(seed);
+        if (index == null) {
+            index = updateSeed.size();
+            updateSeed.add(seed);
+            seedIndex.put(seed, index);
+            parent.add(index);
+        }
+        return index;
+    }
+
+    private static int findSeedRoot(List<Integer> parent, int i) {
+        while (parent.get(i) != i) {
+            parent.set(i, parent.get(parent.get(i)));
+            i = parent.get(i);
+        }
+        return i;
+    }
+
+    private static void unionSeeds(List<Integer> parent, int i, int j) {
+        int rootI = findSeedRoot(parent, i);
+        int rootJ = findSeedRoot(parent, j);
+        if (rootI != rootJ) {
+            parent.set(rootJ, rootI);
+        }
+    }
+
+    /**
+     * Expands the cluster to include all density-reachable points.
+     * Mark all the density-reachable noise points with the cluster id.
+     *
+     * @param updateSeed starting core points
+     * @param clusterId  cluster id
+     */
+    private void expandCluster(List<Point> updateSeed, int clusterId) {
+        List<Point> seeds = new ArrayList<>();
+        for (Point seed : updateSeed) {
+            seeds.addAll(getEpsNeighbors(seed));
+        }
+        int index = 0;
+        while (index < seeds.size()) {
+            Point current = seeds.get(index);
+            // only check noise points
+            if (current.clusterIndex == Point.NOISE) {
+                current.clusterIndex = clusterId;
+                List<Point> currentNeighbors = getEpsNeighbors(current);
+
+                // add noisy density-connected points
+                if (currentNeighbors.size() >= minPts) {
+                    for (Point currentNbr : currentNeighbors) {
+                        if (currentNbr.clusterIndex == Point.NOISE) {
+                            seeds.add(currentNbr);
+                        }
+                    }
+                }
+            }
+            index++;
+        }
+    }
+
+    private List<Point> getEpsNeighbors(final Point point) {
+        return points.getNeighbors(point, eps);
+    }
+}
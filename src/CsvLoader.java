@@ -0,0 +1,563 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Loader of delimited text files (CSV, TSV) with one point per line. The
+ * file is memory-mapped in chunks cut at line ends and parsed in place,
+ * numbers are read by a hand-written parser without building strings.
+ * Chunks are parsed in parallel when loading a whole file.
+ */
+public class CsvLoader {
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;  // map limit 2 GB
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+
+    private static final int SCAN_WINDOW = 1 << 16;  // to find line ends
+
+    // exactly representable powers of ten
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1.0;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private final byte delimiter;  // field separator
+
+    private final int labelColumn;  // column of the true label, or -1
+
+    private final boolean hasHeader;  // skip the first line
+
+    private final int numThreads;  // number of parser threads
+
+    public CsvLoader(final char delimiter, final int labelColumn) {
+        this(delimiter, labelColumn, false, 1);
+    }
+
+    /**
+     * @param delimiter   field separator, e.g. ',' or '\t'
+     * @param labelColumn column holding the integer class label, or -1 if
+     *                    there is none and every column is a coordinate
+     * @param hasHeader   whether the first line is a header
+     * @param numThreads  number of threads parsing chunks
+     */
+    public CsvLoader(final char delimiter, final int labelColumn,
+                     final boolean hasHeader, final int numThreads) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be an ASCII " +
+                    "character other than a line end");
+        }
+        if (labelColumn < -1) {
+            throw new IllegalArgumentException("Label column must be -1 or " +
+                    "a column index");
+        }
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be " +
+                    "positive");
+        }
+
+        this.delimiter = (byte) delimiter;
+        this.labelColumn = labelColumn;
+        this.hasHeader = hasHeader;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Load points. Point indices follow the line order, points without a
+     * label column get label -1.
+     *
+     * @param file      input file
+     * @param maxPoints maximum number of points to load
+     * @return
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public List<Point> load(Path file, int maxPoints) throws IOException {
+        List<Rows> chunks = parseAll(file, maxPoints);
+        List<Point> points = new ArrayList<>();
+        for (Rows rows : chunks) {
+            int d = rows.d;
+            for (int i = 0; i < rows.size && points.size() < maxPoints;
+                 i++) {
+                double[] pos = Arrays.copyOfRange(rows.coords, i * d,
+                        (i + 1) * d);
+                points.add(new Point(pos, points.size(), rows.labels[i]));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Load points into a columnar store.
+     *
+     * @param file      input file
+     * @param maxPoints maximum number of points to load
+     * @return
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public PointStore loadStore(Path file, int maxPoints) throws IOException {
+        List<Rows> chunks = parseAll(file, maxPoints);
+        int total = 0;
+        for (Rows rows : chunks) {
+            total += rows.size;
+        }
+        int d = chunks.isEmpty() ? 1 : chunks.get(0).d;
+        PointStore store = new PointStore(d, Math.max(1, Math.min(total,
+                maxPoints)));
+        double[] pos = new double[d];
+        for (Rows rows : chunks) {
+            for (int i = 0; i < rows.size && store.size() < maxPoints; i++) {
+                System.arraycopy(rows.coords, i * d, pos, 0, d);
+                store.add(pos, store.size(), rows.labels[i]);
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Parse the file sequentially and hand every point to {@code sink} as
+     * soon as its line is read, e.g. {@code cluster::incrementalUpdate}.
+     * No list of points is built.
+     *
+     * @param file      input file
+     * @param maxPoints maximum number of points to read
+     * @param sink      receiver of the points, in line order
+     * @return number of points read
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public int stream(Path file, int maxPoints, Consumer<Point> sink)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, 1);
+            int d = dimension(channel, bounds[0]);
+            double[] row = new double[d];
+            int[] label = new int[1];
+            int numPoints = 0;
+            for (int c = 0; c + 1 < bounds.length && numPoints < maxPoints;
+                 c++) {
+                MappedByteBuffer buf = map(channel, bounds[c],
+                        bounds[c + 1]);
+                int pos = 0;
+                while (pos < buf.limit() && numPoints < maxPoints) {
+                    int end = lineEnd(buf, pos);
+                    if (parseLine(buf, pos, end, bounds[c], row, label)) {
+                        sink.accept(new Point(row.clone(), numPoints,
+                                label[0]));
+                        numPoints++;
+                    }
+                    pos = end + 1;
+                }
+            }
+            return numPoints;
+        }
+    }
+
+    /**
+     * Parse every chunk of the file, in parallel if configured.
+     */
+    private List<Rows> parseAll(Path file, int maxPoints) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, numThreads);
+            int d = dimension(channel, bounds[0]);
+            int numChunks = bounds.length - 1;
+            List<Rows> chunks = new ArrayList<>();
+            for (int c = 0; c < numChunks; c++) {
+                chunks.add(new Rows(d));
+            }
+
+            if (numThreads == 1 || numChunks == 1) {
+                int numPoints = 0;
+                for (int c = 0; c < numChunks && numPoints < maxPoints; c++) {
+                    parseChunk(channel, bounds, c, chunks.get(c),
+                            maxPoints - numPoints);
+                    numPoints += chunks.get(c).size;
+                }
+                return chunks;
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(numThreads);
+            try {
+                pool.submit(() -> IntStream.range(0, numChunks).parallel()
+                        .forEach(c -> {
+                            try {
+                                parseChunk(channel, bounds, c, chunks.get(c),
+                                        maxPoints);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        })).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Loading interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw new IOException("Loading failed", e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            return chunks;
+        }
+    }
+
+    private void parseChunk(FileChannel channel, long[] bounds, int c,
+                            Rows rows, int maxRows) throws IOException {
+        MappedByteBuffer buf = map(channel, bounds[c], bounds[c + 1]);
+        double[] row = new double[rows.d];
+        int[] label = new int[1];
+        int pos = 0;
+        while (pos < buf.limit() && rows.size < maxRows) {
+            int end = lineEnd(buf, pos);
+            if (parseLine(buf, pos, end, bounds[c], row, label)) {
+                rows.add(row, label[0]);
+            }
+            pos = end + 1;
+        }
+    }
+
+    /**
+     * Cut the data lines of the file into chunks ending at line ends.
+     *
+     * @return offsets of the chunk starts, followed by the file size
+     */
+    private long[] chunkBounds(FileChannel channel, int parallelism)
+            throws IOException {
+        long fileSize = channel.size();
+        long start = hasHeader ? nextLineStart(channel, 1) : 0;
+        long chunkSize = Math.min(MAX_CHUNK_BYTES, Math.max(MIN_CHUNK_BYTES,
+                (fileSize - start) / (4L * parallelism) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long pos = start;
+        while (pos < fileSize) {
+            pos = nextLineStart(channel, Math.min(fileSize, pos + chunkSize));
+            bounds.add(pos);
+        }
+        if (bounds.size() == 1) {
+            bounds.add(fileSize);
+        }
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Find the first line start at or after {@code pos}.
+     */
+    private static long nextLineStart(FileChannel channel, long pos)
+            throws IOException {
+        long fileSize = channel.size();
+        if (pos == 0 || pos >= fileSize) {
+            return Math.min(pos, fileSize);
+        }
+
+        long from = pos - 1;  // a line starts at pos if pos - 1 ends one
+        while (from < fileSize) {
+            long to = Math.min(fileSize, from + SCAN_WINDOW);
+            MappedByteBuffer buf = map(channel, from, to);
+            for (int i = 0; i < buf.limit(); i++) {
+                if (buf.get(i) == '\n') {
+                    return from + i + 1;
+                }
+            }
+            from = to;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Count the coordinate columns of the first data line.
+     */
+    private int dimension(FileChannel channel, long start)
+            throws IOException {
+        long fileSize = channel.size();
+        if (start >= fileSize) {
+            return 1;
+        }
+        long end = Math.min(fileSize, nextLineStart(channel, start + 1));
+        return dimension(map(channel, start, end), 0);
+    }
+
+    /**
+     * Count the coordinate columns of the line starting at {@code start}.
+     */
+    private int dimension(ByteBuffer buf, int start) throws IOException {
+        int numColumns = 1;
+        for (int i = start; i < buf.limit() && buf.get(i) != '\n'; i++) {
+            if (buf.get(i) == delimiter) {
+                numColumns++;
+            }
+        }
+        if (labelColumn >= numColumns) {
+            throw new IOException("Label column " + labelColumn +
+                    " is missing, the file has " + numColumns + " columns");
+        }
+        return labelColumn < 0 ? numColumns : numColumns - 1;
+    }
+
+    /**
+     * Whether the first line of an input is a header.
+     */
+    boolean hasHeader() {
+        return hasHeader;
+    }
+
+    /**
+     * Parse a block of whole lines read from a stream, e.g. by
+     * {@link IngestPipeline}. Point indices are the row numbers in the
+     * block, the dimension is taken from its first line.
+     *
+     * @param buf  lines of the block, the last one may lack its line end
+     * @param base stream offset of the block, for error messages
+     * @return parsed rows, or null if every line is blank
+     * @throws IOException if a line is malformed
+     */
+    PointStore parseBlock(ByteBuffer buf, long base) throws IOException {
+        int pos = 0;
+        PointStore rows = null;
+        double[] row = null;
+        int[] label = new int[1];
+        while (pos < buf.limit()) {
+            int end = lineEnd(buf, pos);
+            if (rows == null && end > pos && !(end == pos + 1 &&
+                    buf.get(pos) == '\r')) {
+                int d = dimension(buf, pos);
+                rows = new PointStore(d, 1024);
+                row = new double[d];
+            }
+            if (rows != null && parseLine(buf, pos, end, base, row, label)) {
+                rows.add(row, rows.size(), label[0]);
+            }
+            pos = end + 1;
+        }
+        return rows;
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long from,
+                                        long to) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    private static int lineEnd(ByteBuffer buf, int pos) {
+        while (pos < buf.limit() && buf.get(pos) != '\n') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Parse the line in [start, end) of the buffer.
+     *
+     * @param base  file offset of the buffer, for error messages
+     * @param row   filled with the coordinates
+     * @param label label[0] set to the label, or -1
+     * @return false if the line is blank
+     * @throws IOException if the line is malformed
+     */
+    private boolean parseLine(ByteBuffer buf, int start, int end,
+                              long base, double[] row, int[] label)
+            throws IOException {
+        if (end > start && buf.get(end - 1) == '\r') {
+            end--;
+        }
+        if (end == start) {
+            return false;
+        }
+
+        label[0] = -1;
+        int k = 0;
+        int column = 0;
+        int fieldStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && buf.get(i) != delimiter) {
+                continue;
+            }
+            if (column == labelColumn) {
+                double value = parseDouble(buf, fieldStart, i, base);
+                if (value != (int) value) {
+                    throw new IOException("Label is not an integer at byte " +
+                            (base + fieldStart));
+                }
+                label[0] = (int) value;
+            } else if (k == row.length) {
+                throw new IOException("Too many columns in line at byte " +
+                        (base + start));
+            } else {
+                row[k++] = parseDouble(buf, fieldStart, i, base);
+            }
+            column++;
+            fieldStart = i + 1;
+        }
+        if (k != row.length || column <= labelColumn) {
+            throw new IOException("Too few columns in line at byte " +
+                    (base + start));
+        }
+        return true;
+    }
+
+    /**
+     * Parse a decimal number. Up to 18 significant digits and a decimal
+     * exponent within 22 are computed exactly with one multiplication or
+     * division; anything else falls back to {@link Double#parseDouble}.
+     */
+    static double parseDouble(ByteBuffer buf, int start, int end,
+                              long base) throws IOException {
+        // trim blanks around the field
+        while (start < end && buf.get(start) == ' ') {
+            start++;
+        }
+        while (end > start && buf.get(end - 1) == ' ') {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;  // significant digits in the mantissa
+        int exponent = 0;
+        boolean anyDigit = false;
+        boolean fast = true;
+        while (i < end && isDigit(buf.get(i))) {
+            anyDigit = true;
+            if (numDigits < 18) {
+                mantissa = mantissa * 10 + (buf.get(i) - '0');
+                if (mantissa != 0) {
+                    numDigits++;
+                }
+            } else {
+                fast = false;
+            }
+            i++;
+        }
+        if (i < end && buf.get(i) == '.') {
+            i++;
+            while (i < end && isDigit(buf.get(i))) {
+                anyDigit = true;
+                if (numDigits < 18) {
+                    mantissa = mantissa * 10 + (buf.get(i) - '0');
+                    if (mantissa != 0) {
+                        numDigits++;
+                    }
+                    exponent--;
+                } else {
+                    fast = false;
+                }
+                i++;
+            }
+        }
+        if (anyDigit && i < end && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negativeExp = buf.get(i) == '-';
+                i++;
+            }
+            int exp = 0;
+            boolean anyExpDigit = false;
+            while (i < end && isDigit(buf.get(i))) {
+                anyExpDigit = true;
+                exp = Math.min(exp * 10 + (buf.get(i) - '0'), 100000);
+                i++;
+            }
+            if (!anyExpDigit) {
+                throw malformed(buf, start, end, base);
+            }
+            exponent += negativeExp ? -exp : exp;
+        }
+
+        if (!anyDigit || i != end) {
+            // NaN, Infinity, hexadecimal or garbage
+            return slowParse(buf, start, end, base);
+        }
+        if (fast && mantissa < (1L << 53) && exponent >= -22 &&
+                exponent <= 22) {
+            double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+                    : mantissa / POWERS_OF_TEN[-exponent];
+            return negative ? -value : value;
+        }
+        return slowParse(buf, start, end, base);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static double slowParse(ByteBuffer buf, int start, int end,
+                                    long base) throws IOException {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(start + i);
+        }
+        try {
+            return Double.parseDouble(new String(bytes,
+                    StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw malformed(buf, start, end, base);
+        }
+    }
+
+    private static IOException malformed(ByteBuffer buf, int start,
+                                         int end, long base) {
+        byte[] bytes = new byte[Math.min(end - start, 64)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(start + i);
+        }
+        return new IOException("Malformed number \"" + new String(bytes,
+                StandardCharsets.US_ASCII) + "\" at byte " + (base + start));
+    }
+
+    /**
+     * Parsed rows of one chunk, coordinates row-major.
+     */
+    private static final class Rows {
+
+        final int d;
+
+        double[] coords;
+
+        int[] labels;
+
+        int size;
+
+        Rows(int d) {
+            this.d = d;
+            this.coords = new double[16 * d];
+            this.labels = new int[16];
+        }
+
+        void add(double[] row, int label) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size + (size >> 1));
+                coords = Arrays.copyOf(coords, labels.length * d);
+            }
+            System.arraycopy(row, 0, coords, size * d, d);
+            labels[size++] = label;
+        }
+    }
+}
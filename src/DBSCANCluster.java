@@ -16,18 +16,35 @@ public class DBSCANCluster {
 
     HashMap<Integer, Integer> clusterMapping;  // cluster parent tree
 
+    List<Point> pointsToCluster;  // clustered copies of the input points
+
     private int cntOfNbrSearch;  // number of "getEpsNeighbors" operations
     // per incrementally update
 
+    private final NeighborIndex index;  // index over the points to cluster
+
+    private SpaceFillingCurve spatialOrder;  // memory order, or null
+
     public DBSCANCluster(final double eps, final int minPts) {
+        this(eps, minPts, new LinearScanIndex());
+    }
+
+    public DBSCANCluster(final double eps, final int minPts,
+                         final NeighborIndex index) {
         if (eps < 0.0 || minPts < 1) {
             throw new IllegalArgumentException("DBSCAN param cannot be " +
                     "negative");
         }
+        if (index == null) {
+            throw new IllegalArgumentException("Neighbor index cannot be " +
+                    "null");
+        }
 
         this.eps = eps;
         this.minPts = minPts;
+        this.index = index;
         this.clusterMapping = new HashMap<>();
+        this.pointsToCluster = new ArrayList<>();
         clusterGlobalID = 0;
         cntOfNbrSearch = 0;
     }
@@ -43,9 +60,30 @@ public class DBSCANCluster {
         resetCluster();
 
         // copy points to a new list to cluster (deep copy)
-        List<Point> pointsToCluster = new ArrayList<>();
-        for (Point p : points) {
-            pointsToCluster.add(new Point(p));
+        if (spatialOrder == null) {
+            pointsToCluster = new ArrayList<>();
+            for (Point p : points) {
+                Point copy = new Point(p);
+                pointsToCluster.add(copy);
+                index.insert(copy);
+            }
+        } else {
+            // allocate, list and scan the copies with their coordinates in
+            // curve order, but index them in input order, a sorted run of
+            // inserts would unbalance a k-d tree; the index then lays out
+            // its own storage along the curve
+            Point[] copies = new Point[points.size()];
+            pointsToCluster = new ArrayList<>(points.size());
+            for (int i : spatialOrder.order(points)) {
+                Point p = points.get(i);
+                copies[i] = new Point(p.position.clone(), p.pointIndex,
+                        p.label);
+                pointsToCluster.add(copies[i]);
+            }
+            for (Point copy : copies) {
+                index.insert(copy);
+            }
+            index.reorder(spatialOrder);
         }
 
         for (Point point : pointsToCluster) {
@@ -53,12 +91,11 @@ public class DBSCANCluster {
                 continue;
             }
             point.visited = true;
-            final List<Point> neighbors = getNeighbors(point, pointsToCluster);
+            final List<Point> neighbors = getNeighbors(point);
 
             if (neighbors.size() >= minPts) {
                 point.clusterIndex = clusterGlobalID;
-                expandCluster(point, neighbors, pointsToCluster,
-                        clusterGlobalID);
+                expandCluster(point, neighbors, clusterGlobalID);
                 clusterMapping.put(clusterGlobalID, clusterGlobalID);
                 clusterGlobalID++;
             } else {
@@ -68,6 +105,96 @@ public class DBSCANCluster {
         }
     }
 
+    /**
+     * Batch DBSCAN clustering on a columnar point store.
+     * The cluster index of every stored point is written to the store.
+     * The store is searched with a grid under the metric of the
+     * configured index.
+     *
+     * @param store points to cluster
+     */
+    public void cluster(final PointStore store) {
+        resetCluster();
+        pointsToCluster = new ArrayList<>();
+        if (spatialOrder != null) {
+            store.reorder(spatialOrder.order(store));
+        }
+
+        int n = store.size();
+        StoreGridIndex grid = new StoreGridIndex(store, eps > 0.0 ? eps :
+                1.0, index.getMetric());
+        for (int id = 0; id < n; id++) {
+            grid.insert(id);
+            store.clusterIndex[id] = Point.NOISE;
+        }
+
+        boolean[] visited = new boolean[n];
+        IntList neighbors = new IntList();
+        IntList seeds = new IntList();
+        for (int id = 0; id < n; id++) {
+            if (visited[id]) {
+                continue;
+            }
+            visited[id] = true;
+            store.epsNbrNum[id] = grid.getNeighbors(id, eps, neighbors);
+            cntOfNbrSearch++;
+            if (store.epsNbrNum[id] < minPts) {
+                // noise point temporarily, may become border point later
+                continue;
+            }
+
+            // expand the cluster to include all density-reachable points
+            store.clusterIndex[id] = clusterGlobalID;
+            seeds.clear();
+            for (int i = 0; i < neighbors.size(); i++) {
+                seeds.add(neighbors.get(i));
+            }
+            for (int next = 0; next < seeds.size(); next++) {
+                int current = seeds.get(next);
+                if (!visited[current]) {
+                    visited[current] = true;
+                    store.clusterIndex[current] = clusterGlobalID;
+                    store.epsNbrNum[current] = grid.getNeighbors(current,
+                            eps, neighbors);
+                    cntOfNbrSearch++;
+
+                    // current point is a density-connected core point
+                    if (store.epsNbrNum[current] >= minPts) {
+                        for (int i = 0; i < neighbors.size(); i++) {
+                            int currentNbr = neighbors.get(i);
+                            if (!visited[currentNbr] ||
+                                    store.clusterIndex[currentNbr] ==
+                                            Point.NOISE) {
+                                seeds.add(currentNbr);
+                            }
+                        }
+                    }
+                }
+
+                // assign cluster ID to boarder point
+                if (store.clusterIndex[current] == Point.NOISE) {
+                    store.clusterIndex[current] = clusterGlobalID;
+                }
+            }
+            clusterMapping.put(clusterGlobalID, clusterGlobalID);
+            clusterGlobalID++;
+        }
+    }
+
+    /**
+     * Store and scan the points in the order of a space-filling curve, so
+     * that neighbors are mostly close in memory. Copies of a point list are
+     * allocated and listed in curve order, and the index is asked to
+     * reorder its storage, see {@link NeighborIndex#reorder}; the rows of
+     * a store are reordered in place, with their pointIndex. Cluster ids
+     * are numbered in the order of the list or store, so along the curve.
+     *
+     * @param spatialOrder curve, or null to keep the arrival order
+     */
+    public void setSpatialOrder(SpaceFillingCurve spatialOrder) {
+        this.spatialOrder = spatialOrder;
+    }
+
     /**
      * Get the number of neighbor search operations.
      *
@@ -84,6 +211,7 @@ public class DBSCANCluster {
         cntOfNbrSearch = 0;
         clusterGlobalID = 0;
         clusterMapping.clear();
+        index.clear();
     }
 
     /**
@@ -91,11 +219,10 @@ public class DBSCANCluster {
      *
      * @param point     starting core point
      * @param neighbors point's neighbors
-     * @param points    all point set
      * @param clusterId new cluster id
      */
     private void expandCluster(final Point point, final List<Point> neighbors
-            , final List<Point> points, int clusterId) {
+            , int clusterId) {
         List<Point> seeds = new ArrayList<>(neighbors);
         int index = 0;
         while (index < seeds.size()) {
@@ -104,8 +231,7 @@ public class DBSCANCluster {
             if (!current.visited) {
                 current.visited = true;
                 current.clusterIndex = clusterId;
-                final List<Point> currentNeighbors = getNeighbors(current,
-                        points);
+                final List<Point> currentNeighbors = getNeighbors(current);
 
                 // current point is a density-connected core point
                 if (currentNeighbors.size() >= minPts) {
@@ -128,19 +254,11 @@ public class DBSCANCluster {
     /**
      * Return a list of density-reachable neighbors of a {@code point}
      *
-     * @param point  the point to look for
-     * @param points all points
+     * @param point the point to look for
      * @return neighbors (including point itself)
      */
-    private List<Point> getNeighbors(final Point point,
-                                     final List<Point> points) {
-        final List<Point> neighbors = new ArrayList<>();
-        for (final Point p : points) {
-            // include point itself
-            if (point.euclidDist(p) <= eps) {
-                neighbors.add(p);
-            }
-        }
+    private List<Point> getNeighbors(final Point point) {
+        final List<Point> neighbors = index.getNeighbors(point, eps);
         // add number of eps-neighbors for each point
         point.epsNbrNum = neighbors.size();
         cntOfNbrSearch++;
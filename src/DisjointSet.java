@@ -0,0 +1,257 @@
+import java.util.Arrays;
+
+/**
+ * Union-find over int ids stored in primitive arrays, with union by rank.
+ * Each set also counts its members (e.g. the points labelled with one of
+ * its ids), and the roots of sets with members are kept in a list, so the
+ * live sets are enumerated without scanning every id.
+ */
+public class DisjointSet {
+
+    private int[] parent;
+
+    private byte[] rank;  // upper bound of the height of a root's tree
+
+    private int[] members;  // number of members of a root's set
+
+    private int[] livePos;  // position of a root in liveRoots, or -1
+
+    private final IntList liveRoots;  // roots of sets with members
+
+    private int size;  // number of ids created
+
+    public DisjointSet() {
+        this.parent = new int[16];
+        this.rank = new byte[16];
+        this.members = new int[16];
+        this.livePos = new int[16];
+        this.liveRoots = new IntList();
+        size = 0;
+    }
+
+    /**
+     * Rebuild a union-find from its parent array, e.g. read from a
+     * snapshot. Member counts start at zero.
+     *
+     * @param parents parent of every id, roots are their own parent
+     * @return
+     */
+    public static DisjointSet of(int[] parents) {
+        DisjointSet set = new DisjointSet();
+        for (int id = 0; id < parents.length; id++) {
+            set.makeSet();
+        }
+        for (int id = 0; id < parents.length; id++) {
+            if (parents[id] < 0 || parents[id] >= parents.length) {
+                throw new IllegalArgumentException("Parent of id " + id +
+                        " out of range");
+            }
+            set.parent[id] = parents[id];
+        }
+        // flatten every tree, so a rank of 1 bounds the height of a root
+        for (int id = 0; id < parents.length; id++) {
+            int root = set.find(id);
+            set.parent[id] = root;
+            if (root != id) {
+                set.rank[root] = 1;
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Create a new singleton set without members.
+     *
+     * @return id of the set
+     */
+    public int makeSet() {
+        if (size == parent.length) {
+            int capacity = parent.length * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            members = Arrays.copyOf(members, capacity);
+            livePos = Arrays.copyOf(livePos, capacity);
+        }
+        parent[size] = size;
+        rank[size] = 0;
+        members[size] = 0;
+        livePos[size] = -1;
+        return size++;
+    }
+
+    /**
+     * Find the root of {@code id}, halving the path on the way.
+     *
+     * @param id
+     * @return
+     */
+    public int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Count the parent links from {@code id} to its root, without
+     * compressing the path.
+     *
+     * @param id
+     * @return
+     */
+    public int depth(int id) {
+        int depth = 0;
+        while (parent[id] != id) {
+            id = parent[id];
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Merge the sets of {@code a} and {@code b}, the shallower tree goes
+     * under the root of the deeper one.
+     *
+     * @return root of the merged set
+     */
+    public int union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return rootA;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        } else if (rank[rootA] == rank[rootB]) {
+            rank[rootA]++;
+        }
+
+        parent[rootB] = rootA;
+        members[rootA] += members[rootB];
+        members[rootB] = 0;
+        updateLive(rootB);
+        updateLive(rootA);
+        return rootA;
+    }
+
+    /**
+     * Change the member count of the set of {@code id}.
+     *
+     * @param id    any id of the set
+     * @param delta members added, or removed if negative
+     */
+    public void addMembers(int id, int delta) {
+        int root = find(id);
+        members[root] += delta;
+        updateLive(root);
+    }
+
+    /**
+     * Get the number of members of the set of {@code id}.
+     *
+     * @param id
+     * @return
+     */
+    public int getMembers(int id) {
+        return members[find(id)];
+    }
+
+    /**
+     * Get the number of sets with members.
+     *
+     * @return
+     */
+    public int numLive() {
+        return liveRoots.size();
+    }
+
+    /**
+     * Get the root of the {@code i}-th set with members, in no particular
+     * order.
+     *
+     * @param i index between 0 and numLive() - 1
+     * @return
+     */
+    public int getLiveRoot(int i) {
+        return liveRoots.get(i);
+    }
+
+    /**
+     * Drop every id of a set without members and number the live sets from
+     * 0 to numLive() - 1, in the order of their roots. Afterwards the
+     * memory depends on the number of live sets, not on the number of ids
+     * ever created.
+     *
+     * @return new id of the set of every old id, or -1 if its set was
+     * dropped
+     */
+    public int[] compact() {
+        int[] newIds = new int[size];
+        int numLive = 0;
+        for (int id = 0; id < size; id++) {
+            newIds[id] = parent[id] == id && members[id] > 0 ? numLive++ : -1;
+        }
+        for (int id = 0; id < size; id++) {
+            newIds[id] = newIds[find(id)];
+        }
+
+        int capacity = Math.max(16, numLive);
+        int[] liveMembers = new int[capacity];
+        for (int id = 0; id < size; id++) {
+            if (parent[id] == id && newIds[id] >= 0) {
+                liveMembers[newIds[id]] = members[id];
+            }
+        }
+        parent = new int[capacity];
+        rank = new byte[capacity];
+        members = liveMembers;
+        livePos = new int[capacity];
+        liveRoots.clear();
+        for (int id = 0; id < numLive; id++) {
+            parent[id] = id;
+            livePos[id] = id;
+            liveRoots.add(id);
+        }
+        size = numLive;
+        return newIds;
+    }
+
+    /**
+     * Get the parent of an id, for serialization.
+     *
+     * @param id
+     * @return
+     */
+    public int getParent(int id) {
+        return parent[id];
+    }
+
+    /**
+     * Get the number of ids created.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    private void updateLive(int root) {
+        boolean live = parent[root] == root && members[root] > 0;
+        if (live && livePos[root] < 0) {
+            livePos[root] = liveRoots.size();
+            liveRoots.add(root);
+        } else if (!live && livePos[root] >= 0) {
+            // swap the last root into the freed position
+            int pos = livePos[root];
+            int last = liveRoots.get(liveRoots.size() - 1);
+            liveRoots.swapRemove(pos);
+            if (last != root) {
+                livePos[last] = pos;
+            }
+            livePos[root] = -1;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Squared euclidean distance kernels. The loops are unrolled by four with
+ * independent accumulators, which lets the JIT keep several subtractions
+ * in flight and vectorize them on wide data.
+ */
+final class DistanceKernels {
+
+    private DistanceKernels() {
+    }
+
+    /**
+     * Squared euclidean distance.
+     *
+     * @param a       first array of coordinates
+     * @param aOffset index of the first coordinate in a
+     * @param b       second array of coordinates
+     * @param bOffset index of the first coordinate in b
+     * @param d       number of dimensions
+     * @return
+     */
+    static double distSq(double[] a, int aOffset, double[] b, int bOffset,
+                         int d) {
+        double sum0 = 0.0, sum1 = 0.0, sum2 = 0.0, sum3 = 0.0;
+        int i = 0;
+        for (; i + 3 < d; i += 4) {
+            double diff0 = a[aOffset + i] - b[bOffset + i];
+            double diff1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            double diff2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            double diff3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            sum0 += diff0 * diff0;
+            sum1 += diff1 * diff1;
+            sum2 += diff2 * diff2;
+            sum3 += diff3 * diff3;
+        }
+        for (; i < d; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum0 += diff * diff;
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    /**
+     * Check whether the squared euclidean distance is at most
+     * {@code epsSq}, giving up as soon as a partial sum exceeds it.
+     *
+     * @param a       first array of coordinates
+     * @param aOffset index of the first coordinate in a
+     * @param b       second array of coordinates
+     * @param bOffset index of the first coordinate in b
+     * @param d       number of dimensions
+     * @param epsSq   squared radius of the neighborhood
+     * @return
+     */
+    static boolean withinDistSq(double[] a, int aOffset, double[] b,
+                                int bOffset, int d, double epsSq) {
+        double sum = 0.0;
+        int i = 0;
+        // the partial sum only grows, check it once per block of four
+        for (; i + 3 < d; i += 4) {
+            double diff0 = a[aOffset + i] - b[bOffset + i];
+            double diff1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            double diff2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            double diff3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            sum += (diff0 * diff0 + diff1 * diff1) +
+                    (diff2 * diff2 + diff3 * diff3);
+            if (sum > epsSq) {
+                return false;
+            }
+        }
+        for (; i < d; i++) {
+            double diff = a[aOffset + i] - b[bOffset + i];
+            sum += diff * diff;
+        }
+        return sum <= epsSq;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Distance used by the neighbor indices. Range queries only need to know
+ * whether two points are within eps of each other, which a metric can
+ * usually decide without computing the exact distance.
+ */
+public interface DistanceMetric {
+
+    /**
+     * Distance between two positions.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    double distance(double[] a, double[] b);
+
+    /**
+     * Check whether two positions lie within {@code eps} of each other.
+     *
+     * @param a       first array of coordinates
+     * @param aOffset index of the first coordinate in a
+     * @param b       second array of coordinates
+     * @param bOffset index of the first coordinate in b
+     * @param d       number of dimensions
+     * @param eps     radius of the neighborhood
+     * @return true if the distance is at most eps
+     */
+    boolean withinEps(double[] a, int aOffset, double[] b, int bOffset,
+                      int d, double eps);
+
+    /**
+     * Check whether two positions lie within {@code eps} of each other.
+     *
+     * @param a
+     * @param b
+     * @param eps
+     * @return
+     */
+    default boolean withinEps(double[] a, double[] b, double eps) {
+        return withinEps(a, 0, b, 0, a.length, eps);
+    }
+
+    /**
+     * Pruning rule for the indices: every point within {@code eps} of a
+     * query lies in the axis-aligned box of this half side around it.
+     *
+     * @param eps radius of the neighborhood
+     * @return half side of the box, or positive infinity if the metric
+     * cannot bound it and every point must be checked
+     */
+    double boxRadius(double eps);
+}
@@ -1,19 +1,12 @@
 import java.util.*;
-
-/**
- * Match-based Clustering result.
- */
-class MatchBasedStatRes {
-    public double f1Score, purity;
-}
-
-class PairwiseMetrics {
-    public double jaccard, randStat, fowlkesMallow;
-}
+import java.util.function.ToIntFunction;
 
 /**
  * Clustering quality evaluator.
  * Refer the "Cluster Analysis in Data Mining" by Jiawei Han.
+ * It groups all points in memory, large point sets are evaluated in one
+ * pass by {@link IncrementalEvaluator#of(Iterable)}, or estimated from a
+ * sample by {@link SampledEvaluator}.
  */
 public class Evaluator {
 
@@ -44,6 +37,55 @@ public class Evaluator {
         }
     }
 
+    /**
+     * Evaluate a clustering against a reference clustering of the same
+     * points, e.g. approximate against exact labels: the cluster indices
+     * of the reference take the place of the class labels.
+     * <p>
+     * The clusterIndex of both lists is used as is. An
+     * {@link IncDBSCANCluster} may leave merged points with a non-root id,
+     * so call its compactClusterMapping() first, or resolve the ids with
+     * {@link #against(List, List, ToIntFunction)}.
+     *
+     * @param points    clustered points
+     * @param reference the same points, in the same order, clustered by
+     *                  the reference
+     * @return
+     */
+    public static Evaluator against(final List<Point> points,
+                                    final List<Point> reference) {
+        return against(points, reference, p -> p.clusterIndex);
+    }
+
+    /**
+     * Evaluate a clustering against a reference clustering of the same
+     * points, resolving the cluster id of every clustered point, e.g. with
+     * {@code cluster::getClusterId} of an {@link IncDBSCANCluster}.
+     *
+     * @param points    clustered points
+     * @param reference the same points, in the same order, clustered by
+     *                  the reference
+     * @param clusterOf cluster id of a clustered point, or Point.NOISE
+     * @return
+     */
+    public static Evaluator against(final List<Point> points,
+                                    final List<Point> reference,
+                                    final ToIntFunction<Point> clusterOf) {
+        if (points.size() != reference.size()) {
+            throw new IllegalArgumentException("Expected " +
+                    reference.size() + " points but got " + points.size());
+        }
+        List<Point> relabelled = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            Point p = points.get(i);
+            Point q = new Point(p.position, p.pointIndex,
+                    reference.get(i).clusterIndex);
+            q.clusterIndex = clusterOf.applyAsInt(p);
+            relabelled.add(q);
+        }
+        return new Evaluator(relabelled);
+    }
+
     /**
      * Compute f1 score and purity.
      * Refer "6.4 External Measures 1: Matching-Based Measures" in "Cluster
@@ -65,7 +107,7 @@ public class Evaluator {
 
             List<Point> dominantClusterMembers =
                     classLabelMap.get(dominantLabel);
-            purity += dominantLabelNum / points.size();
+            purity += (double) dominantLabelNum / points.size();
             f1 += (2.0 * dominantLabelNum) / (members.size() +
                     dominantClusterMembers.size());
         }
@@ -87,22 +129,20 @@ public class Evaluator {
         int N = points.size();
         double clusteringEntropy = 0.0;      // H(C)
         double partitioningEntropy = 0.0;    // H(T)
-        HashMap<Integer, Double> clusteringEntropyMap = new HashMap<>();
-        HashMap<Integer, Double> partitioningEntropyMap = new HashMap<>();
+        HashMap<Integer, Double> clusterProbMap = new HashMap<>();
+        HashMap<Integer, Double> partitionProbMap = new HashMap<>();
 
         // Compute entropy of clustering C and partitioning T.
         for (Map.Entry<Integer, List<Point>> entry :
                 clusterIndexMap.entrySet()) {
             double prob = ((double) entry.getValue().size()) / N;
-            double entropy = computeEntropy(prob);
-            clusteringEntropyMap.put(entry.getKey(), entropy);
-            clusteringEntropy += entropy;
+            clusterProbMap.put(entry.getKey(), prob);
+            clusteringEntropy += computeEntropy(prob);
         }
         for (Map.Entry<Integer, List<Point>> entry : classLabelMap.entrySet()) {
             double prob = ((double) entry.getValue().size()) / N;
-            double entropy = computeEntropy(prob);
-            partitioningEntropyMap.put(entry.getKey(), entropy);
-            partitioningEntropy += entropy;
+            partitionProbMap.put(entry.getKey(), prob);
+            partitioningEntropy += computeEntropy(prob);
         }
 
         // Compute the shared information between clustering C and
@@ -121,8 +161,8 @@ public class Evaluator {
                 int label = subEntry.getKey();
                 int num = subEntry.getValue();
                 double prob = ((double) num) / N;
-                mutualInfo += prob * Math.log(prob / (clusteringEntropyMap.
-                        get(clusterIndex) * partitioningEntropyMap.get(label)));
+                mutualInfo += prob * Math.log(prob / (clusterProbMap.
+                        get(clusterIndex) * partitionProbMap.get(label)));
             }
         }
 
@@ -137,30 +177,32 @@ public class Evaluator {
      * @return
      */
     public PairwiseMetrics pairwiseMetrics() {
-        int tp = 0, fn = 0, fp = 0, tn = 0;
+        // pair counts grow with the square of the number of points
+        long tp = 0, fn = 0, fp = 0, tn = 0;
         for (List<Point> cluster : clusterIndexMap.values()) {
             HashMap<Integer, Integer> map = new HashMap<>();
             for (Point p : cluster) {
                 map.put(p.label, map.getOrDefault(p.label, 0) + 1);
             }
-            for (int nij : map.values()) {
+            for (long nij : map.values()) {
                 tp += nij * (nij - 1) / 2;
             }
-            fp += cluster.size() * (cluster.size() - 1) / 2;
+            fp += (long) cluster.size() * (cluster.size() - 1) / 2;
         }
         fp -= tp;
 
         for (List<Point> partition : classLabelMap.values()) {
-            fn += partition.size() * (partition.size() - 1) / 2;
+            fn += (long) partition.size() * (partition.size() - 1) / 2;
         }
         fn -= tp;
-        tn = points.size() - (tp + fp + fn);
+        long numPairs = (long) points.size() * (points.size() - 1) / 2;
+        tn = numPairs - (tp + fp + fn);
 
         PairwiseMetrics pairwise = new PairwiseMetrics();
         pairwise.jaccard = ((double) tp) / (tp + fn + fp);
-        pairwise.randStat = ((double) tp + tn) / points.size();
+        pairwise.randStat = ((double) tp + tn) / numPairs;
         pairwise.fowlkesMallow =
-                ((double) tp) / Math.sqrt((tp + fn) * (tp + fp));
+                ((double) tp) / Math.sqrt((double) (tp + fn) * (tp + fp));
         return pairwise;
     }
 
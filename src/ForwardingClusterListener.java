@@ -0,0 +1,94 @@
+/**
+ * Listener passing every event on to another listener. Subclasses
+ * override the events they look at and call the super method to keep
+ * forwarding them. A method added to {@link ClusterListener} must be
+ * forwarded here as well.
+ */
+public class ForwardingClusterListener implements ClusterListener {
+
+    private final ClusterListener next;  // listener getting every event
+
+    /**
+     * @param next listener getting every event
+     */
+    public ForwardingClusterListener(final ClusterListener next) {
+        if (next == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+
+        this.next = next;
+    }
+
+    @Override
+    public void seedEmpty(Point newPoint) {
+        next.seedEmpty(newPoint);
+    }
+
+    @Override
+    public void clusterCreated(int clusterId, int numSeeds) {
+        next.clusterCreated(clusterId, numSeeds);
+    }
+
+    @Override
+    public void clusterAbsorbed(int clusterId, int numSeeds) {
+        next.clusterAbsorbed(clusterId, numSeeds);
+    }
+
+    @Override
+    public void clustersMerged(int mergedClusterId, int numClusters,
+                               int numSeeds) {
+        next.clustersMerged(mergedClusterId, numClusters, numSeeds);
+    }
+
+    @Override
+    public void pointAssigned(Point point, int oldClusterId,
+                              int newClusterId) {
+        next.pointAssigned(point, oldClusterId, newClusterId);
+    }
+
+    @Override
+    public void noisePromoted(Point point, int clusterId) {
+        next.noisePromoted(point, clusterId);
+    }
+
+    @Override
+    public void clustersUnited(int oldClusterId, int newClusterId) {
+        next.clustersUnited(oldClusterId, newClusterId);
+    }
+
+    @Override
+    public void clusterRenumbered(int oldClusterId, int newClusterId) {
+        next.clusterRenumbered(oldClusterId, newClusterId);
+    }
+
+    @Override
+    public void pointDeleted(Point point) {
+        next.pointDeleted(point);
+    }
+
+    @Override
+    public void clusterSplit(int clusterId, int newClusterId) {
+        next.clusterSplit(clusterId, newClusterId);
+    }
+
+    @Override
+    public void clusterExpanded(int clusterId, int numTouched) {
+        next.clusterExpanded(clusterId, numTouched);
+    }
+
+    @Override
+    public void rootFound(int pathLength) {
+        next.rootFound(pathLength);
+    }
+
+    @Override
+    public void insertCompleted(int numPoints, int numRangeQueries,
+                                long nanos) {
+        next.insertCompleted(numPoints, numRangeQueries, nanos);
+    }
+
+    @Override
+    public void deleteCompleted(int numRangeQueries, long nanos) {
+        next.deleteCompleted(numRangeQueries, nanos);
+    }
+}
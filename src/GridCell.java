@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+/**
+ * Integer coordinates of a cell of a uniform grid.
+ * Keys stored in a map are never changed; a query may reuse a probe cell by
+ * overwriting its coordinates and calling {@link #rehash()}.
+ */
+final class GridCell {
+
+    final int[] coords;
+
+    private int hash;
+
+    GridCell(int[] coords) {
+        this.coords = coords;
+        this.hash = Arrays.hashCode(coords);
+    }
+
+    /**
+     * Set the coordinates to the cell containing the position stored at
+     * {@code values[offset, offset + d)}.
+     */
+    void locate(double[] values, int offset, double cellSide) {
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = (int) Math.floor(values[offset + i] / cellSide);
+        }
+        rehash();
+    }
+
+    /**
+     * Recompute the hash code after the coordinates were changed.
+     */
+    void rehash() {
+        hash = Arrays.hashCode(coords);
+    }
+
+    /**
+     * Cell containing the position stored at
+     * {@code values[offset, offset + d)}.
+     *
+     * @param values   coordinates
+     * @param offset   index of the first coordinate
+     * @param d        dimension
+     * @param cellSide side length of a grid cell
+     * @return
+     */
+    static GridCell of(double[] values, int offset, int d, double cellSide) {
+        GridCell cell = new GridCell(new int[d]);
+        cell.locate(values, offset, cellSide);
+        return cell;
+    }
+
+    int chebyshevDist(GridCell other) {
+        int dist = 0;
+        for (int i = 0; i < coords.length; i++) {
+            dist = Math.max(dist, Math.abs(coords[i] - other.coords[i]));
+        }
+        return dist;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GridCell &&
+                Arrays.equals(coords, ((GridCell) o).coords);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,298 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Batch DBSCAN clusterer for low dimensional data, on a grid of cells with
+ * side eps / sqrt(d) (Gunawan, 2013; de Berg et al., 2017). Any two points
+ * of a cell are within eps, so a cell holding at least minPts points is all
+ * core. Core cells are joined when some pair of their core points is
+ * within eps, testing only the cells near each other and stopping at the
+ * first such pair. For a fixed dimension the run time is close to linear.
+ * <p>
+ * Clusters are numbered like DBSCANCluster. A border point joins the
+ * smallest cluster among its core neighbors. epsNbrNum is exact for
+ * points that are not core, core points only count up to at least minPts.
+ */
+public class GridDBSCANCluster {
+
+    private final double eps;  // Maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // Minimum number of points needed for a cluster
+
+    private int clusterGlobalID; // cluster unique ID, start from 0
+
+    HashMap<Integer, Integer> clusterMapping;  // cluster parent tree
+
+    List<Point> pointsToCluster;  // clustered copies of the input points
+
+    private int cntOfNbrSearch;  // number of point neighborhood scans
+
+    private final ArrayList<Cell> cells;  // non-empty cells of the last run
+
+    public GridDBSCANCluster(final double eps, final int minPts) {
+        if (eps < 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param cannot be " +
+                    "negative");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.clusterMapping = new HashMap<>();
+        this.pointsToCluster = new ArrayList<>();
+        this.cells = new ArrayList<>();
+    }
+
+    /**
+     * Grid DBSCAN clustering algorithm.
+     * The clustering result is each point is labelled
+     * with either a cluster index or noise.
+     *
+     * @param points points to cluster
+     */
+    public void cluster(final List<Point> points) {
+        cntOfNbrSearch = 0;
+        clusterGlobalID = 0;
+        clusterMapping.clear();
+        cells.clear();
+
+        // copy points to a new list to cluster (deep copy)
+        pointsToCluster = new ArrayList<>(points.size());
+        for (Point p : points) {
+            Point copy = new Point(p);
+            copy.visited = true;
+            copy.clusterIndex = Point.NOISE;
+            pointsToCluster.add(copy);
+        }
+        int n = pointsToCluster.size();
+        if (n == 0) {
+            return;
+        }
+
+        int d = pointsToCluster.get(0).position.length;
+        buildCells(d);
+        int[] cellOf = new int[n];
+        for (Cell cell : cells) {
+            for (int j = 0; j < cell.points.size(); j++) {
+                cellOf[cell.points.get(j)] = cell.id;
+            }
+        }
+
+        // step 1: core points, a full cell is all core
+        boolean[] core = new boolean[n];
+        for (Cell cell : cells) {
+            boolean full = eps > 0.0 && cell.points.size() >= minPts;
+            for (int j = 0; j < cell.points.size(); j++) {
+                int i = cell.points.get(j);
+                Point point = pointsToCluster.get(i);
+                point.epsNbrNum = full ? cell.points.size() :
+                        countNeighbors(point, cell);
+                core[i] = point.epsNbrNum >= minPts;
+                if (core[i]) {
+                    cell.corePoints.add(i);
+                }
+            }
+        }
+
+        // step 2: join neighboring core cells
+        DisjointSet coreCells = new DisjointSet();
+        for (int c = 0; c < cells.size(); c++) {
+            coreCells.makeSet();
+        }
+        for (Cell cell : cells) {
+            if (cell.corePoints.isEmpty()) {
+                continue;
+            }
+            for (Cell nbr : cell.neighbors) {
+                if (nbr.id > cell.id && !nbr.corePoints.isEmpty() &&
+                        coreCells.find(cell.id) != coreCells.find(nbr.id) &&
+                        anyPairWithinEps(cell.corePoints, nbr.corePoints)) {
+                    coreCells.union(cell.id, nbr.id);
+                }
+            }
+        }
+
+        // step 3: number clusters in the order of their first core point
+        int[] clusterOfRoot = new int[cells.size()];
+        Arrays.fill(clusterOfRoot, Point.NOISE);
+        for (int i = 0; i < n; i++) {
+            if (!core[i]) {
+                continue;
+            }
+            int root = coreCells.find(cellOf[i]);
+            if (clusterOfRoot[root] == Point.NOISE) {
+                clusterOfRoot[root] = clusterGlobalID;
+                clusterMapping.put(clusterGlobalID, clusterGlobalID);
+                clusterGlobalID++;
+            }
+            pointsToCluster.get(i).clusterIndex = clusterOfRoot[root];
+        }
+
+        // step 4: border points take the smallest cluster of a core
+        // neighbor, the others stay noise
+        for (int i = 0; i < n; i++) {
+            if (core[i]) {
+                continue;
+            }
+            Point point = pointsToCluster.get(i);
+            cntOfNbrSearch++;
+            for (Cell nbr : cells.get(cellOf[i]).neighbors) {
+                for (int j = 0; j < nbr.corePoints.size(); j++) {
+                    Point other = pointsToCluster.get(nbr.corePoints.get(j));
+                    if ((point.clusterIndex == Point.NOISE ||
+                            other.clusterIndex < point.clusterIndex) &&
+                            StandardMetric.EUCLIDEAN.withinEps(point.position,
+                                    other.position, eps)) {
+                        point.clusterIndex = other.clusterIndex;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the number of neighbor search operations.
+     *
+     * @return
+     */
+    public int getCntOfNbrSearch() {
+        return cntOfNbrSearch;
+    }
+
+    /**
+     * Get the number of non-empty grid cells of the last run.
+     *
+     * @return
+     */
+    public int getNumCells() {
+        return cells.size();
+    }
+
+    /**
+     * Bucket the points into cells, and link every cell to the non-empty
+     * cells that may hold points within eps of it, itself included.
+     */
+    private void buildCells(int d) {
+        double cellSide = eps > 0.0 ? eps / Math.sqrt(d) : 1.0;
+        HashMap<GridCell, Cell> cellMap = new HashMap<>();
+        for (int i = 0; i < pointsToCluster.size(); i++) {
+            double[] position = pointsToCluster.get(i).position;
+            if (position.length != d) {
+                throw new IllegalArgumentException("Expected dimension " + d +
+                        " but got " + position.length);
+            }
+            GridCell key = GridCell.of(position, 0, d, cellSide);
+            Cell cell = cellMap.get(key);
+            if (cell == null) {
+                cell = new Cell(cells.size(), key);
+                cellMap.put(key, cell);
+                cells.add(cell);
+            }
+            cell.points.add(i);
+        }
+
+        int[][] offsets = neighborOffsets(d);
+        GridCell probe = new GridCell(new int[d]);
+        for (Cell cell : cells) {
+            for (int[] offset : offsets) {
+                for (int k = 0; k < d; k++) {
+                    probe.coords[k] = cell.key.coords[k] + offset[k];
+                }
+                probe.rehash();
+                Cell nbr = cellMap.get(probe);
+                if (nbr != null) {
+                    cell.neighbors.add(nbr);
+                }
+            }
+        }
+    }
+
+    /**
+     * Offsets of the cells with a gap of at most eps to a cell. With side
+     * eps / sqrt(d), the squared gap in cell sides must be at most d.
+     */
+    private static int[][] neighborOffsets(int d) {
+        int reach = 1 + (int) Math.floor(Math.sqrt(d));
+        List<int[]> offsets = new ArrayList<>();
+        int[] offset = new int[d];
+        Arrays.fill(offset, -reach);
+        while (true) {
+            int gapSq = 0;
+            for (int k = 0; k < d; k++) {
+                int gap = Math.max(Math.abs(offset[k]) - 1, 0);
+                gapSq += gap * gap;
+            }
+            if (gapSq <= d) {
+                offsets.add(offset.clone());
+            }
+
+            // next offset in odometer order
+            int k = 0;
+            while (k < d && offset[k] == reach) {
+                offset[k] = -reach;
+                k++;
+            }
+            if (k == d) {
+                return offsets.toArray(new int[0][]);
+            }
+            offset[k]++;
+        }
+    }
+
+    /**
+     * Count the neighbors of a point, itself included, stopping at minPts.
+     */
+    private int countNeighbors(Point point, Cell cell) {
+        cntOfNbrSearch++;
+        int count = 0;
+        for (Cell nbr : cell.neighbors) {
+            for (int j = 0; j < nbr.points.size(); j++) {
+                if (StandardMetric.EUCLIDEAN.withinEps(point.position,
+                        pointsToCluster.get(nbr.points.get(j)).position,
+                        eps) && ++count >= minPts) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Whether some point of a is within eps of some point of b.
+     */
+    private boolean anyPairWithinEps(IntList a, IntList b) {
+        for (int i = 0; i < a.size(); i++) {
+            double[] position = pointsToCluster.get(a.get(i)).position;
+            for (int j = 0; j < b.size(); j++) {
+                if (StandardMetric.EUCLIDEAN.withinEps(position,
+                        pointsToCluster.get(b.get(j)).position, eps)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Non-empty grid cell.
+     */
+    private static final class Cell {
+
+        final int id;  // index in cells
+
+        final GridCell key;
+
+        final IntList points = new IntList();  // indices of its points
+
+        final IntList corePoints = new IntList();  // indices of core points
+
+        final List<Cell> neighbors = new ArrayList<>();  // nearby cells
+
+        Cell(int id, GridCell key) {
+            this.id = id;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uniform grid index. Space is cut into hypercube cells of equal side
+ * (usually eps), and only the cells around the query point are scanned.
+ * The block of scanned cells is sized by the pruning box of the metric.
+ */
+public class GridIndex implements NeighborIndex {
+
+    private final double cellSide;  // side length of a grid cell
+
+    private final Map<GridCell, List<Point>> cells;  // non-empty cells
+
+    private final AtomicInteger size;  // number of indexed points
+
+    private final DistanceMetric metric;
+
+    public GridIndex(final double cellSide) {
+        this(cellSide, StandardMetric.EUCLIDEAN);
+    }
+
+    public GridIndex(final double cellSide, final DistanceMetric metric) {
+        this(cellSide, metric, false);
+    }
+
+    /**
+     * @param cellSide   side length of a grid cell
+     * @param metric     distance between points
+     * @param concurrent whether points are inserted from several threads;
+     *                   callers must still make sure that no thread reads
+     *                   or writes a cell another thread is writing
+     */
+    GridIndex(final double cellSide, final DistanceMetric metric,
+              final boolean concurrent) {
+        if (cellSide <= 0.0) {
+            throw new IllegalArgumentException("Grid cell side must be " +
+                    "positive");
+        }
+
+        this.cellSide = cellSide;
+        this.metric = metric;
+        this.cells = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.size = new AtomicInteger();
+    }
+
+    @Override
+    public void insert(Point point) {
+        GridCell key = cellOf(point.position);
+        List<Point> cell = cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>();
+            cells.put(key, cell);
+        }
+        cell.add(point);
+        size.incrementAndGet();
+    }
+
+    @Override
+    public boolean remove(Point point) {
+        GridCell key = cellOf(point.position);
+        List<Point> cell = cells.get(key);
+        if (cell == null) {
+            return false;
+        }
+        for (int i = 0; i < cell.size(); i++) {
+            if (cell.get(i) == point) {
+                // order inside a cell does not matter, swap with the last
+                cell.set(i, cell.get(cell.size() - 1));
+                cell.remove(cell.size() - 1);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+                size.decrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int forEachNeighbor(Point point, double eps,
+                               NeighborVisitor visitor) {
+        int d = point.position.length;
+        QueryScratch scratch = QueryScratch.get(d);
+        GridCell center = scratch.center;
+        center.locate(point.position, 0, cellSide);
+        // infinite if the metric cannot bound the neighborhood
+        double maxReach = Math.ceil(metric.boxRadius(eps) / cellSide);
+        int numNeighbors = 0;
+
+        // number of cells in the (2 * reach + 1)^d block around the center
+        double numBlockCells = Math.pow(2 * maxReach + 1, d);
+        if (numBlockCells > cells.size()) {
+            // sparse grid (or high dimension), cheaper to check every cell
+            for (Map.Entry<GridCell, List<Point>> entry :
+                    cells.entrySet()) {
+                if (entry.getKey().chebyshevDist(center) <= maxReach) {
+                    numNeighbors += visit(point, eps, entry.getValue(),
+                            visitor);
+                }
+            }
+            return numNeighbors;
+        }
+
+        // enumerate the block of cells like an odometer
+        int reach = (int) maxReach;
+        int[] offset = scratch.offset;
+        Arrays.fill(offset, -reach);
+        GridCell probe = scratch.probe;
+        while (true) {
+            for (int i = 0; i < d; i++) {
+                probe.coords[i] = center.coords[i] + offset[i];
+            }
+            probe.rehash();
+            List<Point> cell = cells.get(probe);
+            if (cell != null) {
+                numNeighbors += visit(point, eps, cell, visitor);
+            }
+
+            int i = 0;
+            while (i < d && offset[i] == reach) {
+                offset[i] = -reach;
+                i++;
+            }
+            if (i == d) {
+                break;
+            }
+            offset[i]++;
+        }
+        return numNeighbors;
+    }
+
+    /**
+     * Rebuild the cell lists in curve order, so that each list holds its
+     * points along the curve and the lists of nearby cells are allocated
+     * next to each other.
+     */
+    @Override
+    public void reorder(SpaceFillingCurve curve) {
+        List<Point> all = new ArrayList<>(size.get());
+        for (List<Point> cell : cells.values()) {
+            all.addAll(cell);
+        }
+        cells.clear();
+        size.set(0);
+        for (int i : curve.order(all)) {
+            insert(all.get(i));
+        }
+    }
+
+    @Override
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void clear() {
+        cells.clear();
+        size.set(0);
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+        List<Point> all = new ArrayList<>(size.get());
+        for (List<Point> cell : cells.values()) {
+            all.addAll(cell);
+        }
+        return all.iterator();
+    }
+
+    /**
+     * Visit points of a cell lying within eps of {@code point}.
+     */
+    private int visit(Point point, double eps, List<Point> cell,
+                      NeighborVisitor visitor) {
+        int numNeighbors = 0;
+        for (int i = 0; i < cell.size(); i++) {
+            final Point p = cell.get(i);
+            // include point itself
+            if (metric.withinEps(point.position, p.position, eps)) {
+                visitor.visit(p);
+                numNeighbors++;
+            }
+        }
+        return numNeighbors;
+    }
+
+    /**
+     * Compute the key of the cell containing a position.
+     *
+     * @param position
+     * @return
+     */
+    private GridCell cellOf(double[] position) {
+        return GridCell.of(position, 0, position.length, cellSide);
+    }
+
+    /**
+     * Compute the integer coordinates of the cell containing a position.
+     *
+     * @param position
+     * @return
+     */
+    int[] cellCoords(double[] position) {
+        return cellOf(position).coords;
+    }
+
+    /**
+     * Per-thread cells and offsets reused by queries.
+     */
+    private static final class QueryScratch {
+
+        private static final ThreadLocal<QueryScratch> LOCAL =
+                new ThreadLocal<>();
+
+        final GridCell center;
+
+        final GridCell probe;
+
+        final int[] offset;
+
+        private QueryScratch(int d) {
+            center = new GridCell(new int[d]);
+            probe = new GridCell(new int[d]);
+            offset = new int[d];
+        }
+
+        static QueryScratch get(int d) {
+            QueryScratch scratch = LOCAL.get();
+            if (scratch == null || scratch.offset.length != d) {
+                scratch = new QueryScratch(d);
+                LOCAL.set(scratch);
+            }
+            return scratch;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative values with power-of-two buckets. Recording
+ * does not allocate, percentiles are exact within a factor of two.
+ */
+public class Histogram {
+
+    // bucket i > 0 counts the values in [2^(i-1), 2^i), bucket 0 counts 0
+    private final long[] buckets = new long[65];
+
+    private long count;
+
+    private long sum;
+
+    private long max;
+
+    /**
+     * Record a value, negative values count as 0.
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[64 - Long.numberOfLeadingZeros(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    /**
+     * Upper bound of the value below which a fraction {@code q} of the
+     * recorded values lie.
+     *
+     * @param q fraction between 0 and 1
+     * @return
+     */
+    public long getPercentile(double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("Percentile must be between " +
+                    "0 and 1");
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                long upper = i == 0 ? 0 : i == 64 ? Long.MAX_VALUE :
+                        (1L << i) - 1;
+                return Math.min(upper, max);
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(buckets, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    public String toString() {
+        return "count=" + count + " mean=" + String.format("%.1f",
+                getMean()) + " p50=" + getPercentile(0.5) + " p99=" +
+                getPercentile(0.99) + " max=" + max;
+    }
+}
@@ -1,35 +1,89 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 public class IncDBSCANCluster {
 
-    private List<Point> points;   // data warehouse storing all the points
+    private final NeighborIndex points;   // data warehouse storing all the
+    // points, indexed for eps-range queries
 
     private final double eps;  // maximum radius of the neighborhood to be
     // considered
 
     private final int minPts;  // minimum number of points needed for a cluster
 
-    private int clusterGlobalID; // cluster unique ID, start from 0
+    private int cntOfNbrSearch;  // number of range queries run by
+    // "getEpsNeighbors" per incrementally update
 
-    private int cntOfNbrSearch;  // number of "getEpsNeighbors" operations
-    // per incrementally update
+    // cluster parent tree, counting the points of every cluster
+    DisjointSet clusterMapping;
 
-    HashMap<Integer, Integer> clusterMapping;  // cluster parent tree
+    // summary of every cluster by root id, null for merged ids
+    private final ArrayList<ClusterStats> clusterStats = new ArrayList<>();
+
+    // scratch space reused by every insert, so that a steady-state
+    // incrementalUpdate does not allocate
+    private final NeighborList newNeighbors = new NeighborList();  // N(p)
+
+    private final NeighborList queryBuffer = new NeighborList();
+
+    private final ArrayList<Point> candidates = new ArrayList<>();  // q'
+
+    private final ArrayList<Point> updateSeed = new ArrayList<>();  // UpdSeed
+
+    private final IntList seedParent = new IntList();  // union-find on seeds
+
+    private final IntList regionHead = new IntList();  // first seed of region
+
+    private final IntList regionNext = new IntList();  // next seed of region
+
+    private final IntList seedClusters = new IntList();  // clusters of seeds
+
+    private final IntList clusterSeeds = new IntList();  // a seed of each
+
+    private final IntList regionClusters = new IntList();  // of one region
+
+    private final ArrayList<Point> expandQueue = new ArrayList<>();
+
+    private int updateStamp;  // id of the current update, marks its seeds
+
+    private ClusterListener listener;  // events and metrics, or null
+
+    private NeighborCache neighborCache;  // cached neighbor lists, or null
+
+    private IncrementalEvaluator evaluator;  // quality tracking, or null
+
+    private SpaceFillingCurve spatialOrder;  // storage order, or null
+
+    private int reorderPeriod;  // inserts between two reorders
+
+    private int insertsSinceReorder;  // inserts since the last reorder
 
     public IncDBSCANCluster(final double eps, final int minPts) {
+        this(eps, minPts, new LinearScanIndex());
+    }
+
+    public IncDBSCANCluster(final double eps, final int minPts,
+                            final NeighborIndex index) {
         if (eps < 0.0 || minPts < 1) {
             throw new IllegalArgumentException("DBSCAN param cannot be " +
                     "negative");
         }
+        if (index == null || index.size() != 0) {
+            throw new IllegalArgumentException("Neighbor index must be " +
+                    "empty");
+        }
 
         this.eps = eps;
         this.minPts = minPts;
-        this.points = new ArrayList<>();
-        this.clusterMapping = new HashMap<>();
-        clusterGlobalID = 0;
+        this.points = index;
+        this.clusterMapping = new DisjointSet();
         cntOfNbrSearch = 0;
     }
 
@@ -39,16 +93,23 @@ public class IncDBSCANCluster {
      * @param newPoint
      */
     public void incrementalUpdate(Point newPoint) {
-        points.add(newPoint);
+        long start = listener == null ? 0L : System.nanoTime();
+        newPoint.clusterIndex = Point.NOISE;
+        points.insert(newPoint);
+        if (evaluator != null) {
+            evaluator.add(Point.NOISE, newPoint.label);
+        }
         cntOfNbrSearch = 0;
+        updateStamp++;
 
         // candidates contains q' points.
-        List<Point> candidates = new ArrayList<>();
-        List<Point> neighbors = getEpsNeighbors(newPoint);
-        for (Point nbr : neighbors) {
+        candidates.clear();
+        getEpsNeighbors(newPoint, newNeighbors);
+        for (int i = 0; i < newNeighbors.size(); i++) {
+            Point nbr = newNeighbors.get(i);
             if (nbr == newPoint) {
                 // add number of eps-neighbors for new point
-                newPoint.epsNbrNum = neighbors.size();
+                newPoint.epsNbrNum = newNeighbors.size();
                 if (newPoint.epsNbrNum >= minPts) {
                     candidates.add(newPoint);
                 }
@@ -58,74 +119,497 @@ public class IncDBSCANCluster {
                 // q' is core point in {D union p} but not in D.
                 if (nbr.epsNbrNum == minPts) {
                     candidates.add(nbr);
+                    coreChanged(nbr);
+                }
+                if (neighborCache != null) {
+                    neighborCache.neighborInserted(nbr, newPoint);
                 }
             }
         }
 
         // find UpdSeed_Ins, q is a core point in {D union p} and
-        // q \in N_Eps(q')
-        HashSet<Point> updateSeed = new HashSet<>();
-        for (Point q_Prime : candidates) {
-            List<Point> q_Prime_Neighbors = getEpsNeighbors(q_Prime);
-            for (Point q : q_Prime_Neighbors) {
-                if (q.epsNbrNum >= minPts) {
-                    updateSeed.add(q);
+        // q \in N_Eps(q'), split into density-connected regions
+        findUpdateSeedRegions(newPoint, null);
+
+        // different cases based on the UpdSeed_Ins
+        if (updateSeed.isEmpty()) {  // UpdSeed is empty, p is a noise point
+            if (listener != null) {
+                listener.seedEmpty(newPoint);
+            }
+            // unless p is a border point of an existing core point
+            for (int i = 0; i < newNeighbors.size(); i++) {
+                Point nbr = newNeighbors.get(i);
+                if (nbr.epsNbrNum >= minPts) {
+                    assignCluster(newPoint, nbr.clusterIndex);
+                    break;
                 }
             }
+        } else {
+            updateRegions();
         }
 
-        for (Point p : updateSeed) {
-            System.out.println("updateSeed " + p.toString());
+        newPoint.visited = true;
+        reorderIfDue(1);
+        if (listener != null) {
+            listener.insertCompleted(1, cntOfNbrSearch,
+                    System.nanoTime() - start);
         }
+    }
 
-        // different cases based on the UpdSeed_Ins
-        if (updateSeed.isEmpty()) {  // UpdSeed is empty, p is a noise point
-            System.out.println("Upd is empty");
+    /**
+     * Incrementally update with a batch of new points. The result is the
+     * same as inserting the points one by one, but the whole batch is
+     * indexed first, overlapping UpdSeed_Ins are handled once, and every
+     * affected region is expanded and merged in a single pass.
+     *
+     * @param newPoints
+     */
+    public void incrementalUpdate(List<Point> newPoints) {
+        long start = listener == null ? 0L : System.nanoTime();
+        for (Point newPoint : newPoints) {
             newPoint.clusterIndex = Point.NOISE;
-        } else {
-            // set contains only non-noise cluster index.
-            HashSet<Integer> clusterIdSet = new HashSet<>();
-            for (Point seed : updateSeed) {
-                if (seed.clusterIndex != Point.NOISE) {
-                    int rootClusterID = findRootClusterID(seed.clusterIndex);
-                    clusterIdSet.add(rootClusterID);
-                }
-            }
-
-            if (clusterIdSet.isEmpty()) {
-                System.out.println("All seeds are noise");
-                // case 1: all seeds were noise before new point insertion,
-                // a new cluster containing these noise objects as well as
-                // new point is created.
-                for (Point seed : updateSeed) {
-                    expandCluster(seed, clusterGlobalID);
-                    clusterMapping.put(clusterGlobalID, clusterGlobalID);
-                }
-                clusterGlobalID++;
-            } else if (clusterIdSet.size() == 1) {
-                System.out.println("All seeds are one cluster");
-                // retrieve the unique cluster id.
-                int uniqueClusterID = -1;
-                for (int id : clusterIdSet) {
-                    uniqueClusterID = id;
-                }
-                // case 2: seeds contain core points of exactly one cluster
-                for (Point seed : updateSeed) {
-                    expandCluster(seed, uniqueClusterID);
+            points.insert(newPoint);
+            if (evaluator != null) {
+                evaluator.add(Point.NOISE, newPoint.label);
+            }
+        }
+        cntOfNbrSearch = 0;
+        updateStamp++;
+        HashSet<Point> batch = new HashSet<>(newPoints);
+
+        // candidates contains q' points, from the batch or from D.
+        candidates.clear();
+        HashMap<Point, List<Point>> knownNeighbors = new HashMap<>();
+        for (Point newPoint : newPoints) {
+            List<Point> neighbors = getEpsNeighbors(newPoint);
+            knownNeighbors.put(newPoint, neighbors);
+            // add number of eps-neighbors for new point, which includes
+            // the other new points around it
+            newPoint.epsNbrNum = neighbors.size();
+            if (newPoint.epsNbrNum >= minPts) {
+                candidates.add(newPoint);
+            }
+            for (Point nbr : neighbors) {
+                if (!batch.contains(nbr)) {
+                    if (neighborCache != null) {
+                        neighborCache.neighborInserted(nbr, newPoint);
+                    }
+                    // update number of neighbors.
+                    nbr.epsNbrNum++;
+                    // q' is core point in {D union batch} but not in D.
+                    if (nbr.epsNbrNum == minPts) {
+                        candidates.add(nbr);
+                        coreChanged(nbr);
+                    }
+                }
+            }
+        }
+
+        // find UpdSeed_Ins of the whole batch, split into density-connected
+        // regions
+        findUpdateSeedRegions(null, knownNeighbors);
+        updateRegions();
+
+        // new points outside of every region are border or noise points
+        for (Point newPoint : newPoints) {
+            if (newPoint.clusterIndex == Point.NOISE) {
+                for (Point nbr : knownNeighbors.get(newPoint)) {
+                    if (nbr.epsNbrNum >= minPts) {
+                        assignCluster(newPoint, nbr.clusterIndex);
+                        break;
+                    }
                 }
+            }
+            newPoint.visited = true;
+        }
+        reorderIfDue(newPoints.size());
+        if (listener != null) {
+            listener.insertCompleted(newPoints.size(), cntOfNbrSearch,
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Find UpdSeed_Ins for the new core points in {@code candidates}, and
+     * split it into regions. Two seeds fall in the same region if they are
+     * density-connected through the new core points or already belong to
+     * the same cluster. Seeds are left in {@code updateSeed} and the seeds
+     * of each region are chained through {@code regionNext}.
+     *
+     * @param newPoint       new point whose neighbors are in newNeighbors,
+     *                       or null
+     * @param knownNeighbors neighbors already queried in this update, or
+     *                       null
+     */
+    private void findUpdateSeedRegions(Point newPoint,
+                                       Map<Point, List<Point>> knownNeighbors) {
+        updateSeed.clear();
+        seedParent.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            Point q_Prime = candidates.get(i);
+            List<Point> q_Prime_Neighbors;
+            if (q_Prime == newPoint) {
+                q_Prime_Neighbors = newNeighbors;
+            } else if (knownNeighbors != null &&
+                    knownNeighbors.containsKey(q_Prime)) {
+                q_Prime_Neighbors = knownNeighbors.get(q_Prime);
             } else {
-                System.out.println("All seeds are different clusters");
-                // case 3: seeds contains several clusters, merge these clusters
-                newPoint.clusterIndex = clusterGlobalID;
-                for (int id : clusterIdSet) {
-                    clusterMapping.put(id, clusterGlobalID);
+                getEpsNeighbors(q_Prime, queryBuffer);
+                q_Prime_Neighbors = queryBuffer;
+            }
+            int q_PrimeSlot = addSeed(q_Prime);
+            for (int j = 0; j < q_Prime_Neighbors.size(); j++) {
+                Point q = q_Prime_Neighbors.get(j);
+                if (q.epsNbrNum >= minPts) {
+                    unionSeeds(q_PrimeSlot, addSeed(q));
                 }
-                clusterMapping.put(clusterGlobalID, clusterGlobalID);
-                clusterGlobalID++;
             }
         }
 
-        newPoint.visited = true;
+        // seeds of one existing cluster are connected through it
+        seedClusters.clear();
+        clusterSeeds.clear();
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            Point seed = updateSeed.get(slot);
+            if (seed.clusterIndex != Point.NOISE) {
+                int rootClusterID = findRootClusterID(seed.clusterIndex);
+                int i = indexOf(seedClusters, rootClusterID);
+                if (i < 0) {
+                    seedClusters.add(rootClusterID);
+                    clusterSeeds.add(slot);
+                } else {
+                    unionSeeds(clusterSeeds.get(i), slot);
+                }
+            }
+        }
+
+        // chain the seeds of each region, starting from its root seed
+        regionHead.clear();
+        regionNext.clear();
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            regionHead.add(-1);
+            regionNext.add(-1);
+        }
+        for (int slot = updateSeed.size() - 1; slot >= 0; slot--) {
+            int root = findSeedRoot(slot);
+            regionNext.set(slot, regionHead.get(root));
+            regionHead.set(root, slot);
+        }
+    }
+
+    /**
+     * Update the clustering of every region found by
+     * {@link #findUpdateSeedRegions}.
+     */
+    private void updateRegions() {
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            if (findSeedRoot(slot) == slot) {
+                updateRegion(regionHead.get(slot));
+            }
+        }
+    }
+
+    private int addSeed(Point seed) {
+        if (seed.updateStamp != updateStamp) {
+            seed.updateStamp = updateStamp;
+            seed.seedSlot = updateSeed.size();
+            updateSeed.add(seed);
+            seedParent.add(seed.seedSlot);
+        }
+        return seed.seedSlot;
+    }
+
+    private int findSeedRoot(int slot) {
+        while (seedParent.get(slot) != slot) {
+            seedParent.set(slot, seedParent.get(seedParent.get(slot)));
+            slot = seedParent.get(slot);
+        }
+        return slot;
+    }
+
+    private void unionSeeds(int a, int b) {
+        int rootA = findSeedRoot(a);
+        int rootB = findSeedRoot(b);
+        if (rootA != rootB) {
+            seedParent.set(rootB, rootA);
+        }
+    }
+
+    private static int indexOf(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Update the clustering of one density-connected region of UpdSeed_Ins.
+     *
+     * @param head first seed of the region
+     */
+    private void updateRegion(int head) {
+        // list contains only non-noise root cluster index.
+        regionClusters.clear();
+        int numSeeds = 0;
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            numSeeds++;
+            Point seed = updateSeed.get(slot);
+            if (seed.clusterIndex != Point.NOISE) {
+                int rootClusterID = findRootClusterID(seed.clusterIndex);
+                if (indexOf(regionClusters, rootClusterID) < 0) {
+                    regionClusters.add(rootClusterID);
+                }
+            }
+        }
+
+        if (regionClusters.isEmpty()) {
+            // case 1: all seeds were noise before new point insertion,
+            // a new cluster containing these noise objects as well as
+            // new point is created.
+            int newClusterID = newCluster();
+            if (listener != null) {
+                listener.clusterCreated(newClusterID, numSeeds);
+            }
+            expandCluster(head, newClusterID);
+        } else if (regionClusters.size() == 1) {
+            // case 2: seeds contain core points of exactly one cluster
+            if (listener != null) {
+                listener.clusterAbsorbed(regionClusters.get(0), numSeeds);
+            }
+            expandCluster(head, regionClusters.get(0));
+        } else {
+            // case 3: seeds contains several clusters, merge these clusters
+            // under the root of the deepest one
+            int mergedClusterID = regionClusters.get(0);
+            for (int i = 1; i < regionClusters.size(); i++) {
+                mergedClusterID = unionClusters(mergedClusterID,
+                        regionClusters.get(i));
+            }
+            if (listener != null) {
+                listener.clustersMerged(mergedClusterID,
+                        regionClusters.size(), numSeeds);
+            }
+            // noise points around new core points join the merged
+            // cluster as well
+            expandCluster(head, mergedClusterID);
+        }
+    }
+
+    /**
+     * Incrementally delete a point.
+     *
+     * @param oldPoint point inserted before
+     */
+    public void incrementalDelete(Point oldPoint) {
+        long start = listener == null ? 0L : System.nanoTime();
+        if (!points.remove(oldPoint)) {
+            throw new IllegalArgumentException("Point to delete is not " +
+                    "clustered");
+        }
+        cntOfNbrSearch = 0;
+
+        // lost contains q' points, core in D but not in D \ {p}, and p
+        // itself if it was a core point.
+        List<Point> lost = new ArrayList<>();
+        if (neighborCache != null) {
+            // the cached list still holds p itself
+            neighborCache.invalidate(oldPoint);
+        }
+        List<Point> neighbors = getEpsNeighbors(oldPoint);
+        if (neighborCache != null) {
+            neighborCache.invalidate(oldPoint);
+        }
+        if (oldPoint.epsNbrNum >= minPts) {
+            lost.add(oldPoint);
+        }
+        for (Point nbr : neighbors) {
+            if (neighborCache != null) {
+                neighborCache.neighborRemoved(nbr, oldPoint);
+            }
+            // update number of neighbors.
+            nbr.epsNbrNum--;
+            if (nbr.epsNbrNum == minPts - 1) {
+                lost.add(nbr);
+                coreChanged(nbr);
+            }
+        }
+
+        assignCluster(oldPoint, Point.NOISE);
+        if (evaluator != null) {
+            evaluator.remove(Point.NOISE, oldPoint.label);
+        }
+        if (listener != null) {
+            listener.pointDeleted(oldPoint);
+        }
+        oldPoint.epsNbrNum = 1;
+        oldPoint.visited = false;
+
+        // no core point lost, p was a border or noise point
+        if (lost.isEmpty()) {
+            if (listener != null) {
+                listener.deleteCompleted(cntOfNbrSearch,
+                        System.nanoTime() - start);
+            }
+            return;
+        }
+
+        // find UpdSeed_Del, q is a core point in D \ {p} and
+        // q \in N_Eps(q'), grouped by the cluster of q. Non-core points
+        // around q' may have lost their cluster.
+        HashMap<Integer, List<Point>> updateSeed = new HashMap<>();
+        HashSet<Point> seedSet = new HashSet<>();
+        HashSet<Point> borders = new HashSet<>();
+        for (Point q_Prime : lost) {
+            List<Point> q_Prime_Neighbors = q_Prime == oldPoint ?
+                    neighbors : getEpsNeighbors(q_Prime);
+            for (Point q : q_Prime_Neighbors) {
+                if (q.epsNbrNum < minPts) {
+                    borders.add(q);
+                } else if (q.clusterIndex != Point.NOISE && seedSet.add(q)) {
+                    int rootClusterID = findRootClusterID(q.clusterIndex);
+                    if (!updateSeed.containsKey(rootClusterID)) {
+                        updateSeed.put(rootClusterID, new ArrayList<>());
+                    }
+                    updateSeed.get(rootClusterID).add(q);
+                }
+            }
+        }
+
+        // seeds of one cluster may no longer be density-connected
+        for (Map.Entry<Integer, List<Point>> entry : updateSeed.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                splitCluster(entry.getKey(), entry.getValue());
+            }
+        }
+
+        // border points join a cluster of a remaining core neighbor, or
+        // become noise
+        for (Point border : borders) {
+            reassignBorder(border);
+        }
+        if (listener != null) {
+            listener.deleteCompleted(cntOfNbrSearch,
+                    System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Renumber the clusters holding points from 0, dropping the ids of
+     * merged and emptied clusters with their summaries, and point every
+     * clustered point directly at its new id. The cluster mapping then
+     * grows with the live clusters only, not with every cluster ever
+     * created. Cluster ids obtained before are stale afterwards; the
+     * listener gets the new id of every renumbered cluster.
+     */
+    public void compactClusterMapping() {
+        int[] newIds = clusterMapping.compact();
+        ArrayList<ClusterStats> liveStats = new ArrayList<>(
+                clusterMapping.size());
+        for (int id = 0; id < clusterMapping.size(); id++) {
+            liveStats.add(null);
+        }
+        for (int id = 0; id < newIds.length; id++) {
+            // only roots have a summary
+            if (newIds[id] >= 0 && clusterStats.get(id) != null) {
+                ClusterStats stats = clusterStats.get(id);
+                stats.setId(newIds[id]);
+                liveStats.set(newIds[id], stats);
+                if (listener != null && newIds[id] != id) {
+                    listener.clusterRenumbered(id, newIds[id]);
+                }
+            }
+        }
+        clusterStats.clear();
+        clusterStats.addAll(liveStats);
+        clusterStats.trimToSize();
+
+        for (Point p : points) {
+            if (p.clusterIndex != Point.NOISE) {
+                p.clusterIndex = newIds[p.clusterIndex];
+            }
+        }
+        if (evaluator != null) {
+            fillEvaluator();
+        }
+    }
+
+    /**
+     * Get the canonical cluster id of a clustered point, the root of its
+     * cluster. The point is relabelled with it, so the next lookup is
+     * immediate.
+     *
+     * @param point clustered point
+     * @return cluster id, or Point.NOISE
+     */
+    public int getClusterId(Point point) {
+        if (point.clusterIndex != Point.NOISE) {
+            point.clusterIndex = findRootClusterID(point.clusterIndex);
+        }
+        return point.clusterIndex;
+    }
+
+    /**
+     * Get the number of clusters holding at least one point.
+     *
+     * @return
+     */
+    public int getNumClusters() {
+        return clusterMapping.numLive();
+    }
+
+    /**
+     * Get the ids of the clusters holding at least one point.
+     *
+     * @return canonical cluster ids, in no particular order
+     */
+    public int[] getClusterIds() {
+        int[] ids = new int[clusterMapping.numLive()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = clusterMapping.getLiveRoot(i);
+        }
+        return ids;
+    }
+
+    /**
+     * Get the number of points, core and border, of a cluster.
+     *
+     * @param clusterId any id of the cluster
+     * @return
+     */
+    public int getClusterSize(int clusterId) {
+        return clusterMapping.getMembers(findRootClusterID(clusterId));
+    }
+
+    /**
+     * Get the summary of a cluster: its counts, centroid, bounding box and
+     * members. The summary follows later updates, until the cluster is
+     * merged into another one.
+     *
+     * @param clusterId any id of the cluster
+     * @return summary, or null if the cluster holds no point
+     */
+    public ClusterStats getClusterStats(int clusterId) {
+        int root = findRootClusterID(clusterId);
+        if (clusterMapping.getMembers(root) == 0) {
+            return null;
+        }
+        return clusterStats.get(root);
+    }
+
+    /**
+     * Get the summaries of all clusters holding at least one point.
+     *
+     * @return
+     */
+    public List<ClusterStats> getClusters() {
+        List<ClusterStats> clusters = new ArrayList<>(
+                clusterMapping.numLive());
+        for (int i = 0; i < clusterMapping.numLive(); i++) {
+            clusters.add(clusterStats.get(clusterMapping.getLiveRoot(i)));
+        }
+        return clusters;
     }
 
     /**
@@ -137,6 +621,159 @@ public class IncDBSCANCluster {
         return cntOfNbrSearch;
     }
 
+    /**
+     * Get the clustered points, in the order of the index.
+     *
+     * @return
+     */
+    public Iterable<Point> getPoints() {
+        return points;
+    }
+
+    /**
+     * Write the clustering state to a binary snapshot file, see
+     * {@link ClusterSnapshot} for the layout.
+     *
+     * @param file snapshot file, overwritten if it exists
+     * @throws IOException
+     */
+    public void snapshot(Path file) throws IOException {
+        List<Point> all = new ArrayList<>(points.size());
+        for (Point p : points) {
+            all.add(p);
+        }
+        ClusterSnapshot.write(file, eps, minPts, all, clusterMapping);
+    }
+
+    /**
+     * Restore a clusterer from a snapshot file. Inserts and deletes continue
+     * from the saved state. The points are new objects, see
+     * {@link #getPoints()}. Restoring is not lazy: it takes time and heap
+     * linear in the number of points, which are all rebuilt and inserted
+     * into the index, but runs no neighbor query.
+     *
+     * @param file  snapshot file
+     * @param index empty index to hold the restored points
+     * @return
+     * @throws IOException if the file is not a valid snapshot
+     */
+    public static IncDBSCANCluster restore(Path file, NeighborIndex index)
+            throws IOException {
+        return ClusterSnapshot.read(file, index);
+    }
+
+    /**
+     * Set the cluster ids of a clusterer whose points were inserted into the
+     * index directly, and count the points of every cluster.
+     */
+    void restoreState(DisjointSet clusterMapping) {
+        this.clusterMapping = clusterMapping;
+        clusterStats.clear();
+        for (int id = 0; id < clusterMapping.size(); id++) {
+            clusterStats.add(clusterMapping.getParent(id) == id ?
+                    new ClusterStats(id) : null);
+        }
+        for (Point p : points) {
+            if (p.clusterIndex != Point.NOISE) {
+                int clusterId = p.clusterIndex;
+                p.clusterIndex = Point.NOISE;
+                assignCluster(p, clusterId);
+            }
+        }
+    }
+
+    /**
+     * Set the listener receiving events and measurements of every update.
+     *
+     * @param listener listener, or null to disable all measurements
+     */
+    public void setListener(ClusterListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Get the listener receiving events and measurements.
+     *
+     * @return listener, or null
+     */
+    public ClusterListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Set the cache of neighbor lists. Lists are cached as points are
+     * queried and kept up to date on every insert and delete, so repeated
+     * queries of a point within and across updates become lookups.
+     *
+     * @param neighborCache empty cache, or null to query the index every
+     *                      time
+     */
+    public void setNeighborCache(NeighborCache neighborCache) {
+        if (neighborCache != null && neighborCache.getNumLists() != 0) {
+            throw new IllegalArgumentException("Neighbor cache must be " +
+                    "empty");
+        }
+        this.neighborCache = neighborCache;
+    }
+
+    /**
+     * Set the evaluator tracking the quality of the clustering against the
+     * class labels of the points. It is filled with the points clustered
+     * so far, then updated by every insert, delete, merge and split.
+     *
+     * @param evaluator evaluator, or null to stop tracking
+     */
+    public void setEvaluator(IncrementalEvaluator evaluator) {
+        this.evaluator = evaluator;
+        if (evaluator != null) {
+            fillEvaluator();
+        }
+    }
+
+    /**
+     * Reorder the storage of the index along a space-filling curve after
+     * every {@code period} inserted points, so that range queries and
+     * cluster expansion read neighbors mostly one after the other instead
+     * of in arrival order. Points keep their identity and cluster ids, only
+     * the order of {@link #getPoints()} changes. The reorder is paid by the
+     * insert that triggers it; indices without a reorderable storage ignore
+     * it, see {@link NeighborIndex#reorder}.
+     *
+     * @param spatialOrder curve, or null to keep the arrival order
+     * @param period       number of inserts between two reorders
+     */
+    public void setSpatialOrder(SpaceFillingCurve spatialOrder, int period) {
+        if (spatialOrder != null && period < 1) {
+            throw new IllegalArgumentException("Reorder period must be " +
+                    "positive");
+        }
+        this.spatialOrder = spatialOrder;
+        this.reorderPeriod = period;
+        insertsSinceReorder = 0;
+    }
+
+    private void reorderIfDue(int numInserted) {
+        if (spatialOrder == null) {
+            return;
+        }
+        insertsSinceReorder += numInserted;
+        if (insertsSinceReorder >= reorderPeriod) {
+            points.reorder(spatialOrder);
+            insertsSinceReorder = 0;
+        }
+    }
+
+    /**
+     * Count every point in the evaluator by its root cluster id.
+     */
+    private void fillEvaluator() {
+        evaluator.clear();
+        for (Point p : points) {
+            evaluator.add(p.clusterIndex == Point.NOISE ? Point.NOISE :
+                    clusterMapping.find(p.clusterIndex), p.label);
+        }
+    }
+
     /**
      * Find root of the tree given a cluster index.
      *
@@ -144,54 +781,260 @@ public class IncDBSCANCluster {
      * @return
      */
     private int findRootClusterID(int id) {
-        int root = id;
-        if (!clusterMapping.containsKey(root)) {
-            System.out.println("Error: " + root);
+        if (id < 0 || id >= clusterMapping.size()) {
+            throw new IllegalStateException("Unknown cluster id " + id);
+        }
+        if (listener != null) {
+            listener.rootFound(clusterMapping.depth(id));
+        }
+        return clusterMapping.find(id);
+    }
+
+    /**
+     * Move a point to another cluster, keeping the point counts of the
+     * clusters up to date.
+     *
+     * @param point     point to relabel
+     * @param clusterId new cluster id, or Point.NOISE
+     */
+    private void assignCluster(Point point, int clusterId) {
+        boolean core = point.epsNbrNum >= minPts;
+        int oldRoot = Point.NOISE;
+        int newRoot = Point.NOISE;
+        if (point.clusterIndex != Point.NOISE) {
+            oldRoot = clusterMapping.find(point.clusterIndex);
+            clusterMapping.addMembers(oldRoot, -1);
+            clusterStats.get(oldRoot).remove(point, core);
+        }
+        if (clusterId != Point.NOISE) {
+            newRoot = clusterMapping.find(clusterId);
+            clusterMapping.addMembers(newRoot, 1);
+            clusterStats.get(newRoot).add(point, core);
         }
-        while (clusterMapping.get(root) != root) {
-            root = clusterMapping.get(root);
-            if (!clusterMapping.containsKey(root)) {
-                System.out.println("Error: " + root);
+        if (evaluator != null && oldRoot != newRoot) {
+            evaluator.move(oldRoot, newRoot, point.label);
+        }
+        point.clusterIndex = clusterId;
+        if (listener != null && oldRoot != newRoot) {
+            listener.pointAssigned(point, oldRoot, newRoot);
+            // points of the running update are not visited yet
+            if (oldRoot == Point.NOISE && point.visited) {
+                listener.noisePromoted(point, newRoot);
             }
         }
+    }
+
+    /**
+     * Count a clustered point that just became a core point, or stopped
+     * being one, in the summary of its cluster.
+     */
+    private void coreChanged(Point point) {
+        if (point.clusterIndex != Point.NOISE) {
+            clusterStats.get(clusterMapping.find(point.clusterIndex))
+                    .coreChanged(point.epsNbrNum >= minPts);
+        }
+    }
+
+    /**
+     * Create a new empty cluster.
+     *
+     * @return id of the cluster
+     */
+    private int newCluster() {
+        int clusterId = clusterMapping.makeSet();
+        clusterStats.add(new ClusterStats(clusterId));
+        return clusterId;
+    }
 
-        // path compression
-        while (id != root) {
-            int parent = clusterMapping.get(id);
-            clusterMapping.put(id, root);
-            id = parent;
+    /**
+     * Merge two clusters, with their summaries.
+     *
+     * @return root id of the merged cluster
+     */
+    private int unionClusters(int a, int b) {
+        int rootA = clusterMapping.find(a);
+        int rootB = clusterMapping.find(b);
+        int root = clusterMapping.union(rootA, rootB);
+        if (rootA != rootB) {
+            int child = root == rootA ? rootB : rootA;
+            clusterStats.get(root).merge(clusterStats.get(child));
+            clusterStats.set(child, null);
+            if (evaluator != null) {
+                evaluator.merge(root, child);
+            }
+            if (listener != null) {
+                listener.clustersUnited(child, root);
+            }
         }
         return root;
     }
 
+    /**
+     * Check whether the core points {@code seeds} of a cluster are still
+     * density-connected, and move every part cut off from the others to a
+     * new cluster. The searches from all seeds advance in turn and stop once
+     * only one of them is left, so unless the cluster really splits, only
+     * the area between the seeds is visited.
+     *
+     * @param clusterId root id of the cluster
+     * @param seeds     core points next to the deleted point
+     */
+    private void splitCluster(int clusterId, List<Point> seeds) {
+        int numSearches = seeds.size();
+        int[] parent = new int[numSearches];  // searches that have met
+        List<ArrayDeque<Point>> queues = new ArrayList<>();
+        List<List<Point>> members = new ArrayList<>();
+        HashMap<Point, Integer> owner = new HashMap<>();
+        HashSet<Point> claimedBorders = new HashSet<>();
+        for (int i = 0; i < numSearches; i++) {
+            Point seed = seeds.get(i);
+            parent[i] = i;
+            queues.add(new ArrayDeque<>());
+            queues.get(i).add(seed);
+            members.add(new ArrayList<>());
+            members.get(i).add(seed);
+            owner.put(seed, i);
+        }
+
+        int numActive = numSearches;
+        boolean[] finished = new boolean[numSearches];
+        while (numActive > 1) {
+            for (int i = 0; i < numSearches && numActive > 1; i++) {
+                if (finished[i] || parent[i] != i) {
+                    continue;
+                }
+
+                ArrayDeque<Point> queue = queues.get(i);
+                if (queue.isEmpty()) {
+                    // search i found its whole component without meeting
+                    // another one, the component becomes a new cluster.
+                    finished[i] = true;
+                    numActive--;
+                    int newClusterID = newCluster();
+                    if (listener != null) {
+                        listener.clusterSplit(clusterId, newClusterID);
+                    }
+                    for (Point p : members.get(i)) {
+                        assignCluster(p, newClusterID);
+                    }
+                    continue;
+                }
+
+                Point current = queue.poll();
+                for (Point nbr : getEpsNeighbors(current)) {
+                    if (nbr.epsNbrNum >= minPts) {
+                        Integer other = owner.get(nbr);
+                        if (other == null) {
+                            owner.put(nbr, i);
+                            queue.add(nbr);
+                            members.get(i).add(nbr);
+                        } else {
+                            int otherRoot = findSearchRoot(parent, other);
+                            if (otherRoot != i) {
+                                // two searches met, continue as one
+                                parent[otherRoot] = i;
+                                mergeInto(queues, i, otherRoot);
+                                mergeInto(members, i, otherRoot);
+                                numActive--;
+                                queue = queues.get(i);
+                            }
+                        }
+                    } else if (nbr.clusterIndex != Point.NOISE &&
+                            findRootClusterID(nbr.clusterIndex) == clusterId
+                            && claimedBorders.add(nbr)) {
+                        members.get(i).add(nbr);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the elements of collection {@code from} into collection
+     * {@code to}, always copying the smaller one.
+     */
+    private static <C extends Collection<Point>> void mergeInto(
+            List<C> collections, int to, int from) {
+        C large = collections.get(to);
+        C small = collections.get(from);
+        if (small.size() > large.size()) {
+            C tmp = large;
+            large = small;
+            small = tmp;
+        }
+        large.addAll(small);
+        collections.set(to, large);
+        collections.set(from, null);
+    }
+
+    private static int findSearchRoot(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Assign a non-core point to the cluster of one of its core neighbors,
+     * preferring its current cluster, or mark it as noise.
+     *
+     * @param point non-core point
+     */
+    private void reassignBorder(Point point) {
+        int currentRoot = point.clusterIndex == Point.NOISE ? Point.NOISE :
+                findRootClusterID(point.clusterIndex);
+        int newClusterIndex = Point.NOISE;
+        for (Point nbr : getEpsNeighbors(point)) {
+            if (nbr.epsNbrNum >= minPts && nbr.clusterIndex != Point.NOISE) {
+                if (findRootClusterID(nbr.clusterIndex) == currentRoot) {
+                    return;
+                }
+                if (newClusterIndex == Point.NOISE) {
+                    newClusterIndex = nbr.clusterIndex;
+                }
+            }
+        }
+        assignCluster(point, newClusterIndex);
+    }
+
     /**
      * Expands the cluster to include all density-reachable points.
      * Mark all the density-reachable noise points with the cluster id.
      *
-     * @param seed starting core point
+     * @param head first seed of the region to start from
      * @param clusterId new cluster id
      */
-    private void expandCluster(Point seed, int clusterId) {
-        List<Point> seeds = getEpsNeighbors(seed);
+    private void expandCluster(int head, int clusterId) {
+        expandQueue.clear();
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            getEpsNeighbors(updateSeed.get(slot), queryBuffer);
+            for (int i = 0; i < queryBuffer.size(); i++) {
+                expandQueue.add(queryBuffer.get(i));
+            }
+        }
         int index = 0;
-        while (index < seeds.size()) {
-            Point current = seeds.get(index);
+        while (index < expandQueue.size()) {
+            Point current = expandQueue.get(index);
             // only check noise points
             if (current.clusterIndex == Point.NOISE) {
-                current.clusterIndex = clusterId;
-                List<Point> currentNeighbors = getEpsNeighbors(current);
+                assignCluster(current, clusterId);
 
                 // add noisy density-connected points
-                if (currentNeighbors.size() >= minPts) {
-                    for (Point currentNbr : currentNeighbors) {
+                if (getEpsNeighbors(current, queryBuffer) >= minPts) {
+                    for (int i = 0; i < queryBuffer.size(); i++) {
+                        Point currentNbr = queryBuffer.get(i);
                         if (currentNbr.clusterIndex == Point.NOISE) {
-                            seeds.add(currentNbr);
+                            expandQueue.add(currentNbr);
                         }
                     }
                 }
             }
             index++;
         }
+        if (listener != null) {
+            listener.clusterExpanded(clusterId, expandQueue.size());
+        }
     }
 
     /**
@@ -201,14 +1044,36 @@ public class IncDBSCANCluster {
      * @return neighbors (including point itself)
      */
     private List<Point> getEpsNeighbors(final Point point) {
-        final List<Point> neighbors = new ArrayList<>();
-        for (final Point p : points) {
-            // include point itself
-            if (point.euclidDist(p) <= eps) {
-                neighbors.add(p);
+        NeighborList neighbors = new NeighborList();
+        getEpsNeighbors(point, neighbors);
+        return neighbors;
+    }
+
+    /**
+     * Collect the density-reachable neighbors of a {@code point} into a
+     * reused list.
+     *
+     * @param point     the point to look for
+     * @param neighbors cleared and filled with the neighbors (including
+     *                  point itself)
+     * @return number of neighbors
+     */
+    private int getEpsNeighbors(final Point point, NeighborList neighbors) {
+        neighbors.clear();
+        if (neighborCache != null) {
+            NeighborList cached = neighborCache.get(point);
+            if (cached != null) {
+                for (int i = 0; i < cached.size(); i++) {
+                    neighbors.add(cached.get(i));
+                }
+                return neighbors.size();
             }
         }
+        points.forEachNeighbor(point, eps, neighbors);
         cntOfNbrSearch++;
-        return neighbors;
+        if (neighborCache != null) {
+            neighborCache.put(point, neighbors);
+        }
+        return neighbors.size();
     }
 }
@@ -0,0 +1,291 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Clustering quality evaluator fed by an {@link IncDBSCANCluster} while it
+ * clusters a labeled stream. It keeps a sparse cluster x class label
+ * contingency table, with noise as one more cluster like {@link Evaluator},
+ * so metrics are read at any time without rescanning the points. Pair
+ * counts are maintained on every update, the other metrics take
+ * O(non-zero cells).
+ */
+public class IncrementalEvaluator {
+
+    // contingency table, key: root cluster id or Point.NOISE,
+    // value: number of points of every class label in the cluster
+    private final HashMap<Integer, Row> rows = new HashMap<>();
+
+    // number of points of every class label
+    private final HashMap<Integer, Count> labelSizes = new HashMap<>();
+
+    private long numPoints;
+
+    private long cellPairs;  // pairs in the same cluster and class
+
+    private long clusterPairs;  // pairs in the same cluster
+
+    private long labelPairs;  // pairs in the same class
+
+    /**
+     * Evaluate a clustering in one pass over its points, keeping only the
+     * contingency table instead of grouping the points. Cluster indices
+     * are taken as they are, compact the cluster mapping first.
+     *
+     * @param points clustered points
+     * @return
+     */
+    public static IncrementalEvaluator of(final Iterable<Point> points) {
+        IncrementalEvaluator evaluator = new IncrementalEvaluator();
+        for (Point p : points) {
+            evaluator.add(p.clusterIndex, p.label);
+        }
+        return evaluator;
+    }
+
+    /**
+     * Forget all points.
+     */
+    public void clear() {
+        rows.clear();
+        labelSizes.clear();
+        numPoints = 0;
+        cellPairs = 0;
+        clusterPairs = 0;
+        labelPairs = 0;
+    }
+
+    public long getNumPoints() {
+        return numPoints;
+    }
+
+    /**
+     * Get the number of clusters, noise included if there is any.
+     *
+     * @return
+     */
+    public int getNumClusters() {
+        return rows.size();
+    }
+
+    /**
+     * Get the number of points of a class label in a cluster.
+     *
+     * @param clusterId root cluster id, or Point.NOISE
+     * @param label     class label
+     * @return
+     */
+    public long getCount(int clusterId, int label) {
+        Row row = rows.get(clusterId);
+        if (row == null) {
+            return 0;
+        }
+        Count cell = row.cells.get(label);
+        return cell == null ? 0 : cell.value;
+    }
+
+    /**
+     * Compute f1 score and purity, as {@link Evaluator#f1Score()}.
+     *
+     * @return
+     */
+    public MatchBasedStatRes f1Score() {
+        double f1 = 0.0;
+        double purity = 0.0;
+        for (Row row : rows.values()) {
+            // find dominant class of the cluster
+            int dominantLabel = 0;
+            long dominantLabelNum = 0;
+            for (Map.Entry<Integer, Count> cell : row.cells.entrySet()) {
+                if (cell.getValue().value > dominantLabelNum) {
+                    dominantLabel = cell.getKey();
+                    dominantLabelNum = cell.getValue().value;
+                }
+            }
+
+            purity += (double) dominantLabelNum / numPoints;
+            f1 += (2.0 * dominantLabelNum) / (row.size +
+                    labelSizes.get(dominantLabel).value);
+        }
+
+        MatchBasedStatRes res = new MatchBasedStatRes();
+        res.f1Score = f1 / rows.size();
+        res.purity = purity;
+        return res;
+    }
+
+    /**
+     * Compute normalized mutual information, as {@link Evaluator#NMI()}.
+     *
+     * @return
+     */
+    public double NMI() {
+        double n = numPoints;
+        double clusteringEntropy = 0.0;      // H(C)
+        double partitioningEntropy = 0.0;    // H(T)
+        for (Row row : rows.values()) {
+            clusteringEntropy += entropy(row.size / n);
+        }
+        for (Count labelSize : labelSizes.values()) {
+            partitioningEntropy += entropy(labelSize.value / n);
+        }
+
+        double mutualInfo = 0.0;
+        for (Row row : rows.values()) {
+            for (Map.Entry<Integer, Count> cell : row.cells.entrySet()) {
+                double prob = cell.getValue().value / n;
+                double labelProb = labelSizes.get(cell.getKey()).value / n;
+                mutualInfo += prob * Math.log(prob /
+                        (row.size / n * labelProb));
+            }
+        }
+        return mutualInfo / Math.sqrt(clusteringEntropy * partitioningEntropy);
+    }
+
+    /**
+     * Compute pairwise measures, as {@link Evaluator#pairwiseMetrics()}.
+     *
+     * @return
+     */
+    public PairwiseMetrics pairwiseMetrics() {
+        long tp = cellPairs;
+        long fp = clusterPairs - tp;
+        long fn = labelPairs - tp;
+        long tn = numPoints * (numPoints - 1) / 2 - (tp + fp + fn);
+
+        PairwiseMetrics pairwise = new PairwiseMetrics();
+        pairwise.jaccard = (double) tp / (tp + fn + fp);
+        pairwise.randStat = (double) (tp + tn) / (tp + fp + fn + tn);
+        pairwise.fowlkesMallow =
+                tp / Math.sqrt((double) (tp + fn) * (tp + fp));
+        return pairwise;
+    }
+
+    /**
+     * Count a new point.
+     *
+     * @param clusterId root cluster id, or Point.NOISE
+     * @param label     class label
+     */
+    void add(int clusterId, int label) {
+        Count labelSize = labelSizes.get(label);
+        if (labelSize == null) {
+            labelSize = new Count();
+            labelSizes.put(label, labelSize);
+        }
+        labelPairs += labelSize.value++;
+        numPoints++;
+        addToCluster(clusterId, label);
+    }
+
+    /**
+     * Forget a point.
+     *
+     * @param clusterId root cluster id, or Point.NOISE
+     * @param label     class label
+     */
+    void remove(int clusterId, int label) {
+        removeFromCluster(clusterId, label);
+        Count labelSize = labelSizes.get(label);
+        labelPairs -= --labelSize.value;
+        if (labelSize.value == 0) {
+            labelSizes.remove(label);
+        }
+        numPoints--;
+    }
+
+    /**
+     * Move a point to another cluster.
+     *
+     * @param from  root cluster id, or Point.NOISE
+     * @param to    root cluster id, or Point.NOISE
+     * @param label class label
+     */
+    void move(int from, int to, int label) {
+        removeFromCluster(from, label);
+        addToCluster(to, label);
+    }
+
+    /**
+     * Merge cluster {@code from} into cluster {@code into}, walking the
+     * cells of the smaller of the two.
+     */
+    void merge(int into, int from) {
+        Row source = rows.remove(from);
+        if (source == null) {
+            return;
+        }
+        Row target = rows.get(into);
+        if (target == null) {
+            rows.put(into, source);
+            return;
+        }
+        if (source.cells.size() > target.cells.size()) {
+            Row tmp = source;
+            source = target;
+            target = tmp;
+            rows.put(into, target);
+        }
+
+        clusterPairs += source.size * target.size;
+        target.size += source.size;
+        for (Map.Entry<Integer, Count> cell : source.cells.entrySet()) {
+            Count targetCell = target.cells.get(cell.getKey());
+            if (targetCell == null) {
+                target.cells.put(cell.getKey(), cell.getValue());
+            } else {
+                cellPairs += targetCell.value * cell.getValue().value;
+                targetCell.value += cell.getValue().value;
+            }
+        }
+    }
+
+    private void addToCluster(int clusterId, int label) {
+        Row row = rows.get(clusterId);
+        if (row == null) {
+            row = new Row();
+            rows.put(clusterId, row);
+        }
+        Count cell = row.cells.get(label);
+        if (cell == null) {
+            cell = new Count();
+            row.cells.put(label, cell);
+        }
+        clusterPairs += row.size++;
+        cellPairs += cell.value++;
+    }
+
+    private void removeFromCluster(int clusterId, int label) {
+        Row row = rows.get(clusterId);
+        Count cell = row.cells.get(label);
+        clusterPairs -= --row.size;
+        cellPairs -= --cell.value;
+        if (cell.value == 0) {
+            row.cells.remove(label);
+        }
+        if (row.size == 0) {
+            rows.remove(clusterId);
+        }
+    }
+
+    private static double entropy(double prob) {
+        return -1.0 * prob * Math.log(prob);
+    }
+
+    /**
+     * One cluster of the contingency table.
+     */
+    private static final class Row {
+
+        final HashMap<Integer, Count> cells = new HashMap<>();
+
+        long size;  // number of points in the cluster
+    }
+
+    /**
+     * Mutable count, updated in place in the maps.
+     */
+    private static final class Count {
+
+        long value;
+    }
+}
@@ -0,0 +1,448 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Ingestion pipeline feeding a delimited text stream into an
+ * {@link IncDBSCANCluster}:
+ * <pre>
+ * reader -> parse workers -> bounded queue -> clustering -> sink
+ * </pre>
+ * A reader thread cuts the input into blocks of whole lines and hands
+ * each block to a pool of parse workers. The pending blocks wait in a
+ * bounded queue in input order; the reader blocks while it is full, which
+ * bounds the memory held by the pipeline. The calling thread is the single
+ * writer of the clusterer: it drains the parsed blocks in micro-batches,
+ * inserts every batch with one batch insert, and hands the assignment
+ * changes of the batch to the {@link AssignmentSink} on its own thread.
+ * The changes are collected from the {@link ClusterListener} events of the
+ * insert, so relabels of earlier points and merges of clusters are
+ * published as well; a listener already set on the clusterer still gets
+ * every event.
+ * <p>
+ * Point indices follow the line order. The clusterer must not be used by
+ * other threads while the pipeline runs.
+ */
+public class IngestPipeline {
+
+    private final IncDBSCANCluster cluster;  // single writer: run()
+
+    private final CsvLoader parser;  // line format
+
+    private final AssignmentSink sink;  // receiver of the changes, or null
+
+    private final int numParsers;  // number of parse worker threads
+
+    private final int blockBytes;  // bytes of input per parse task
+
+    private final int queueCapacity;  // pending blocks and sink batches
+
+    private final int maxBatchPoints;  // points per batch insert
+
+    // time a block waited in the queue before clustering took it
+    private final Histogram queueNanos = new Histogram();
+
+    private final Histogram batchSizes = new Histogram();
+
+    private final Histogram batchNanos = new Histogram();
+
+    /**
+     * @param cluster clusterer to feed
+     * @param parser  format of the lines
+     * @param sink    receiver of the assignment changes, or null
+     */
+    public IngestPipeline(final IncDBSCANCluster cluster,
+                          final CsvLoader parser, final AssignmentSink sink) {
+        this(cluster, parser, sink,
+                Runtime.getRuntime().availableProcessors(), 1 << 16, 16,
+                512);
+    }
+
+    /**
+     * @param cluster        clusterer to feed
+     * @param parser         format of the lines
+     * @param sink           receiver of the assignment changes, or null
+     * @param numParsers     number of parse worker threads
+     * @param blockBytes     bytes of input per parse task
+     * @param queueCapacity  maximum number of blocks waiting for the
+     *                       clustering, and of batches waiting for the sink
+     * @param maxBatchPoints maximum number of points per batch insert
+     */
+    public IngestPipeline(final IncDBSCANCluster cluster,
+                          final CsvLoader parser, final AssignmentSink sink,
+                          final int numParsers, final int blockBytes,
+                          final int queueCapacity, final int maxBatchPoints) {
+        if (cluster == null || parser == null) {
+            throw new IllegalArgumentException("Clusterer and parser cannot " +
+                    "be null");
+        }
+        if (numParsers < 1 || blockBytes < 1 || queueCapacity < 1 ||
+                maxBatchPoints < 1) {
+            throw new IllegalArgumentException("Pipeline sizes must be " +
+                    "positive");
+        }
+
+        this.cluster = cluster;
+        this.parser = parser;
+        this.sink = sink;
+        this.numParsers = numParsers;
+        this.blockBytes = blockBytes;
+        this.queueCapacity = queueCapacity;
+        this.maxBatchPoints = maxBatchPoints;
+    }
+
+    /**
+     * Cluster the points of a file.
+     *
+     * @param file      input file
+     * @param maxPoints maximum number of points to insert
+     * @return number of points inserted
+     * @throws IOException if the input cannot be read, a line is malformed
+     *                     or the sink failed
+     */
+    public int run(Path file, int maxPoints) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return run(in, maxPoints);
+        }
+    }
+
+    /**
+     * Cluster the points of a stream, until its end or until
+     * {@code maxPoints} points were inserted. Returns once the sink
+     * published every batch.
+     *
+     * @param in        input, read by the reader thread
+     * @param maxPoints maximum number of points to insert
+     * @return number of points inserted
+     * @throws IOException if the input cannot be read, a line is malformed
+     *                     or the sink failed
+     */
+    public int run(InputStream in, int maxPoints) throws IOException {
+        BlockingQueue<Block> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<IOException> readError = new AtomicReference<>();
+        ExecutorService parsers = Executors.newFixedThreadPool(numParsers,
+                runnable -> newDaemon(runnable, "ingest-parser"));
+        ExecutorService sinkThread = Executors.newSingleThreadExecutor(
+                runnable -> newDaemon(runnable, "ingest-sink"));
+        Thread reader = newDaemon(() -> {
+            try {
+                read(in, queue, parsers);
+            } catch (IOException e) {
+                readError.set(e);
+            } catch (InterruptedException e) {
+                // clustering stopped early
+                return;
+            }
+            try {
+                queue.put(Block.END);
+            } catch (InterruptedException e) {
+                // clustering stopped early
+            }
+        }, "ingest-reader");
+
+        int numPoints = 0;
+        int d = -1;
+        Deque<Future<?>> published = new ArrayDeque<>();
+        ClusterListener previous = cluster.getListener();
+        ChangeCollector changes = null;
+        if (sink != null) {
+            changes = new ChangeCollector(previous != null ? previous :
+                    new ClusterListener() {
+                    });
+            cluster.setListener(changes);
+        }
+        reader.start();
+        try {
+            boolean done = false;
+            while (!done && numPoints < maxPoints) {
+                // micro-batch: every parsed block available right now
+                List<Point> batch = new ArrayList<>();
+                Block block = take(queue);
+                while (block != null) {
+                    if (block == Block.END) {
+                        done = true;
+                        break;
+                    }
+                    queueNanos.record(System.nanoTime() - block.enqueueNanos);
+                    PointStore rows = await(block.rows);
+                    if (rows != null) {
+                        if (d < 0) {
+                            d = rows.dimension();
+                        } else if (rows.dimension() != d) {
+                            throw new IOException("Expected dimension " + d +
+                                    " but got " + rows.dimension() +
+                                    " at byte " + block.offset);
+                        }
+                        for (int i = 0; i < rows.size() &&
+                                numPoints < maxPoints; i++) {
+                            batch.add(new Point(Arrays.copyOfRange(
+                                    rows.coords, i * d, (i + 1) * d),
+                                    numPoints++, rows.label[i]));
+                        }
+                    }
+                    if (batch.size() >= maxBatchPoints ||
+                            numPoints >= maxPoints) {
+                        break;
+                    }
+                    block = queue.poll();
+                }
+                insert(batch, changes, sinkThread, published);
+            }
+            if (done && readError.get() != null) {
+                throw readError.get();
+            }
+            while (!published.isEmpty()) {
+                await(published.poll());
+            }
+            return numPoints;
+        } finally {
+            cluster.setListener(previous);
+            reader.interrupt();
+            parsers.shutdownNow();
+            sinkThread.shutdownNow();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Get the time parsed blocks waited in the queue, in nanoseconds.
+     *
+     * @return
+     */
+    public Histogram getQueueNanos() {
+        return queueNanos;
+    }
+
+    /**
+     * Get the number of points of every batch insert.
+     *
+     * @return
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Get the time of every batch insert, in nanoseconds.
+     *
+     * @return
+     */
+    public Histogram getBatchNanos() {
+        return batchNanos;
+    }
+
+    /**
+     * Cut the input into blocks of whole lines and queue their parse tasks,
+     * in input order.
+     */
+    private void read(InputStream in, BlockingQueue<Block> queue,
+                      ExecutorService parsers)
+            throws IOException, InterruptedException {
+        long offset = 0;  // stream offset of block[0]
+        if (parser.hasHeader()) {
+            int b;
+            do {
+                b = in.read();
+                offset++;
+            } while (b >= 0 && b != '\n');
+        }
+
+        byte[] block = new byte[blockBytes];
+        int len = 0;
+        boolean eof = false;
+        while (!eof) {
+            int count = in.read(block, len, block.length - len);
+            if (count < 0) {
+                eof = true;
+            } else {
+                len += count;
+                if (len < block.length) {
+                    continue;
+                }
+            }
+
+            // cut after the last line end, the rest goes to the next block
+            int cut = len;
+            if (!eof) {
+                while (cut > 0 && block[cut - 1] != '\n') {
+                    cut--;
+                }
+                if (cut == 0) {
+                    // a line longer than the block
+                    block = Arrays.copyOf(block, 2 * block.length);
+                    continue;
+                }
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (cut > 0) {
+                final byte[] lines = block;
+                final int end = cut;
+                final long base = offset;
+                queue.put(new Block(parsers.submit(() -> parser.parseBlock(
+                        ByteBuffer.wrap(lines, 0, end), base)), base));
+            }
+
+            byte[] next = new byte[Math.max(blockBytes, 2 * (len - cut))];
+            System.arraycopy(block, cut, next, 0, len - cut);
+            block = next;
+            len -= cut;
+            offset += cut;
+        }
+    }
+
+    /**
+     * Insert a micro-batch, in slices of at most maxBatchPoints, and
+     * publish the assignment changes of every slice.
+     */
+    private void insert(List<Point> batch, ChangeCollector changes,
+                        ExecutorService sinkThread,
+                        Deque<Future<?>> published) throws IOException {
+        for (int from = 0; from < batch.size(); from += maxBatchPoints) {
+            List<Point> slice = batch.subList(from, Math.min(batch.size(),
+                    from + maxBatchPoints));
+            if (changes != null) {
+                changes.clear();
+            }
+            long start = System.nanoTime();
+            if (slice.size() == 1) {
+                cluster.incrementalUpdate(slice.get(0));
+            } else {
+                cluster.incrementalUpdate(slice);
+            }
+            batchNanos.record(System.nanoTime() - start);
+            batchSizes.record(slice.size());
+            if (sink == null) {
+                continue;
+            }
+
+            // inserted points that stayed noise had no event
+            for (Point p : slice) {
+                if (p.clusterIndex == Point.NOISE) {
+                    changes.pointIndices.add(p.pointIndex);
+                    changes.clusterIds.add(Point.NOISE);
+                }
+            }
+            int[] pointIndices = changes.pointIndices.toArray();
+            int[] clusterIds = changes.clusterIds.toArray();
+            int[] unitedIds = changes.unitedIds.toArray();
+            int[] intoIds = changes.intoIds.toArray();
+            while (published.size() >= queueCapacity) {
+                await(published.poll());
+            }
+            published.add(sinkThread.submit(() -> {
+                sink.publish(pointIndices, clusterIds, unitedIds, intoIds);
+                return null;
+            }));
+        }
+    }
+
+    private static Block take(BlockingQueue<Block> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for input", e);
+        }
+    }
+
+    private static <T> T await(Future<T> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a stage", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Pipeline stage failed", e.getCause());
+        }
+    }
+
+    private static Thread newDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Listener collecting the assignment changes of a slice, and passing
+     * every event on to the listener set before the pipeline ran.
+     */
+    private static final class ChangeCollector
+            extends ForwardingClusterListener {
+
+        final IntList pointIndices = new IntList();  // relabelled points
+
+        final IntList clusterIds = new IntList();  // their new clusters
+
+        final IntList unitedIds = new IntList();  // clusters united away
+
+        final IntList intoIds = new IntList();  // and their new roots
+
+        ChangeCollector(ClusterListener next) {
+            super(next);
+        }
+
+        void clear() {
+            pointIndices.clear();
+            clusterIds.clear();
+            unitedIds.clear();
+            intoIds.clear();
+        }
+
+        @Override
+        public void pointAssigned(Point point, int oldClusterId,
+                                  int newClusterId) {
+            pointIndices.add(point.pointIndex);
+            clusterIds.add(newClusterId);
+            super.pointAssigned(point, oldClusterId, newClusterId);
+        }
+
+        @Override
+        public void clustersUnited(int oldClusterId, int newClusterId) {
+            unitedIds.add(oldClusterId);
+            intoIds.add(newClusterId);
+            super.clustersUnited(oldClusterId, newClusterId);
+        }
+    }
+
+    /**
+     * Block of lines in the queue, parsed or being parsed.
+     */
+    private static final class Block {
+
+        static final Block END = new Block(null, -1);  // end of the input
+
+        final Future<PointStore> rows;  // parsed rows, null if blank
+
+        final long offset;  // stream offset, for error messages
+
+        final long enqueueNanos = System.nanoTime();
+
+        Block(Future<PointStore> rows, long offset) {
+            this.rows = rows;
+            this.offset = offset;
+        }
+    }
+}
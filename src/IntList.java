@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, reused to avoid boxing and allocation.
+ */
+public class IntList {
+
+    private int[] data;
+
+    private int size;
+
+    public IntList() {
+        this(16);
+    }
+
+    public IntList(final int capacity) {
+        this.data = new int[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    public void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public int get(int i) {
+        return data[i];
+    }
+
+    public void set(int i, int value) {
+        data[i] = value;
+    }
+
+    /**
+     * Remove the element at {@code i} by moving the last element there.
+     *
+     * @param i
+     */
+    public void swapRemove(int i) {
+        data[i] = data[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
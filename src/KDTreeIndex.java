@@ -0,0 +1,219 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * KD-tree index. Points are inserted at the leaves without rebalancing, the
+ * splitting axis cycles through the dimensions with the depth.
+ * Removed points are only marked as deleted, the tree is rebuilt balanced
+ * once deleted nodes outnumber live ones.
+ */
+public class KDTreeIndex implements NeighborIndex {
+
+    // per-thread traversal stack reused by queries
+    private static final ThreadLocal<ArrayDeque<Node>> STACK =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    private Node root;
+
+    private int size;  // number of indexed points
+
+    private int numDeleted;  // number of nodes marked as deleted
+
+    private final DistanceMetric metric;
+
+    public KDTreeIndex() {
+        this(StandardMetric.EUCLIDEAN);
+    }
+
+    public KDTreeIndex(final DistanceMetric metric) {
+        this.metric = metric;
+        clear();
+    }
+
+    @Override
+    public void insert(Point point) {
+        size++;
+        if (root == null) {
+            root = new Node(point, 0);
+            return;
+        }
+
+        Node node = root;
+        while (true) {
+            int axis = node.axis;
+            int nextAxis = (axis + 1) % point.position.length;
+            if (point.position[axis] < node.point.position[axis]) {
+                if (node.left == null) {
+                    node.left = new Node(point, nextAxis);
+                    return;
+                }
+                node = node.left;
+            } else {
+                if (node.right == null) {
+                    node.right = new Node(point, nextAxis);
+                    return;
+                }
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public boolean remove(Point point) {
+        // follow the insertion path of the point
+        Node node = root;
+        while (node != null) {
+            if (node.point == point && !node.deleted) {
+                node.deleted = true;
+                size--;
+                numDeleted++;
+                if (numDeleted > size) {
+                    rebuild();
+                }
+                return true;
+            }
+            if (point.position[node.axis] < node.point.position[node.axis]) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int forEachNeighbor(Point point, double eps,
+                               NeighborVisitor visitor) {
+        if (root == null) {
+            return 0;
+        }
+
+        double radius = metric.boxRadius(eps);
+        int numNeighbors = 0;
+        ArrayDeque<Node> stack = STACK.get();
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            // include point itself
+            if (!node.deleted && metric.withinEps(point.position,
+                    node.point.position, eps)) {
+                visitor.visit(node.point);
+                numNeighbors++;
+            }
+
+            // prune subtrees whose slab is farther than the pruning box
+            // of the metric on the axis
+            double diff = point.position[node.axis] -
+                    node.point.position[node.axis];
+            if (node.left != null && diff - radius < 0) {
+                stack.push(node.left);
+            }
+            if (node.right != null && diff + radius >= 0) {
+                stack.push(node.right);
+            }
+        }
+        return numNeighbors;
+    }
+
+    @Override
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        numDeleted = 0;
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+        List<Point> all = new ArrayList<>(size);
+        if (root != null) {
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (!node.deleted) {
+                    all.add(node.point);
+                }
+                if (node.left != null) {
+                    stack.push(node.left);
+                }
+                if (node.right != null) {
+                    stack.push(node.right);
+                }
+            }
+        }
+        return all.iterator();
+    }
+
+    /**
+     * Rebuild a balanced tree from the live points.
+     */
+    private void rebuild() {
+        Point[] live = new Point[size];
+        int i = 0;
+        for (Point p : this) {
+            live[i++] = p;
+        }
+        numDeleted = 0;
+        root = build(live, 0, live.length, 0);
+    }
+
+    /**
+     * Build a subtree over {@code points[from, to)} split at the median.
+     */
+    private static Node build(Point[] points, int from, int to, int axis) {
+        if (from >= to) {
+            return null;
+        }
+        Arrays.sort(points, from, to,
+                Comparator.comparingDouble(p -> p.position[axis]));
+        // points equal to the median on the axis must go right
+        int median = (from + to) >>> 1;
+        while (median > from && points[median - 1].position[axis] ==
+                points[median].position[axis]) {
+            median--;
+        }
+
+        int nextAxis = (axis + 1) % points[median].position.length;
+        Node node = new Node(points[median], axis);
+        node.left = build(points, from, median, nextAxis);
+        node.right = build(points, median + 1, to, nextAxis);
+        return node;
+    }
+
+    /**
+     * Tree node holding one point.
+     */
+    private static final class Node {
+
+        final Point point;
+
+        final int axis;  // splitting dimension
+
+        Node left;  // points with smaller coordinate on axis
+
+        Node right;  // points with greater or equal coordinate on axis
+
+        boolean deleted;
+
+        Node(Point point, int axis) {
+            this.point = point;
+            this.axis = axis;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Approximate index for high dimensional data, by locality sensitive
+ * hashing with random projections (Datar et al., SoCG' 04). Each of
+ * {@code numTables} hash tables buckets the points by {@code numHashes}
+ * quantized projections on random gaussian directions, and a query only
+ * checks the points sharing a bucket with it in some table. Every reported
+ * neighbor is within eps, but a neighbor sharing no bucket is missed.
+ * Two points see each other or neither does, so incremental neighbor
+ * counts stay consistent.
+ * <p>
+ * More tables or wider buckets raise the recall and the query cost, more
+ * hashes per table lower both. Gaussian projections preserve euclidean
+ * distances only, other metrics are rejected.
+ */
+public class LSHIndex implements NeighborIndex {
+
+    private final int numTables;  // independent hash tables
+
+    private final int numHashes;  // projections per table
+
+    private final double width;  // quantization step of a projection
+
+    private final long seed;  // seed of the random projections
+
+    private final DistanceMetric metric;  // euclidean
+
+    private double[] directions;  // numTables * numHashes directions of d
+
+    private double[] offsets;  // random shift of every projection
+
+    private int d;  // dimension, known after the first insert
+
+    private BucketTable[] tables;
+
+    private int size;  // number of indexed points
+
+    // per-thread keys of the query point
+    private final ThreadLocal<long[]> queryKeys;
+
+    /**
+     * @param eps radius of the range queries
+     */
+    public LSHIndex(final double eps) {
+        this(eps, 8, 4, 4.0, 42L);
+    }
+
+    /**
+     * @param eps         radius of the range queries
+     * @param numTables   number of hash tables, the main accuracy knob
+     * @param numHashes   number of projections hashed together per table
+     * @param widthFactor bucket width as a multiple of eps
+     * @param seed        seed of the random projections
+     */
+    public LSHIndex(final double eps, final int numTables, final int numHashes,
+                    final double widthFactor, final long seed) {
+        this(eps, numTables, numHashes, widthFactor, seed,
+                StandardMetric.EUCLIDEAN);
+    }
+
+    /**
+     * @param eps         radius of the range queries
+     * @param numTables   number of hash tables, the main accuracy knob
+     * @param numHashes   number of projections hashed together per table
+     * @param widthFactor bucket width as a multiple of eps
+     * @param seed        seed of the random projections
+     * @param metric      distance between points, only euclidean
+     */
+    public LSHIndex(final double eps, final int numTables, final int numHashes,
+                    final double widthFactor, final long seed,
+                    final DistanceMetric metric) {
+        if (metric != StandardMetric.EUCLIDEAN) {
+            throw new IllegalArgumentException("LSH index supports the " +
+                    "euclidean metric only");
+        }
+        if (eps <= 0.0 || widthFactor <= 0.0) {
+            throw new IllegalArgumentException("Eps and bucket width must " +
+                    "be positive");
+        }
+        if (numTables < 1 || numHashes < 1) {
+            throw new IllegalArgumentException("Number of tables and " +
+                    "hashes must be positive");
+        }
+
+        this.numTables = numTables;
+        this.numHashes = numHashes;
+        this.width = eps * widthFactor;
+        this.seed = seed;
+        this.metric = metric;
+        this.queryKeys = ThreadLocal.withInitial(() -> new long[numTables]);
+        clear();
+    }
+
+    @Override
+    public void insert(Point point) {
+        if (directions == null) {
+            initProjections(point.position.length);
+        }
+        Entry entry = new Entry(point, new long[numTables]);
+        hash(point.position, entry.keys);
+        for (int t = 0; t < numTables; t++) {
+            tables[t].getOrCreate(entry.keys[t]).add(entry);
+        }
+        size++;
+    }
+
+    @Override
+    public boolean remove(Point point) {
+        if (directions == null) {
+            return false;
+        }
+        long[] keys = new long[numTables];
+        hash(point.position, keys);
+        boolean removed = false;
+        for (int t = 0; t < numTables; t++) {
+            List<Entry> bucket = tables[t].get(keys[t]);
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = 0; i < bucket.size(); i++) {
+                if (bucket.get(i).point == point) {
+                    // order inside a bucket does not matter
+                    bucket.set(i, bucket.get(bucket.size() - 1));
+                    bucket.remove(bucket.size() - 1);
+                    if (bucket.isEmpty()) {
+                        tables[t].remove(keys[t]);
+                    }
+                    removed = true;
+                    break;
+                }
+            }
+        }
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    @Override
+    public int forEachNeighbor(Point point, double eps,
+                               NeighborVisitor visitor) {
+        if (size == 0) {
+            return 0;
+        }
+
+        long[] keys = queryKeys.get();
+        hash(point.position, keys);
+        int numNeighbors = 0;
+        for (int t = 0; t < numTables; t++) {
+            List<Entry> bucket = tables[t].get(keys[t]);
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = 0; i < bucket.size(); i++) {
+                Entry entry = bucket.get(i);
+                if (seenBefore(entry, keys, t)) {
+                    continue;
+                }
+                // include point itself
+                if (metric.withinEps(point.position, entry.point.position,
+                        eps)) {
+                    visitor.visit(entry.point);
+                    numNeighbors++;
+                }
+            }
+        }
+        return numNeighbors;
+    }
+
+    @Override
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        tables = new BucketTable[numTables];
+        for (int t = 0; t < numTables; t++) {
+            tables[t] = new BucketTable();
+        }
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+        // every point is in exactly one bucket of the first table
+        List<Point> all = new ArrayList<>(size);
+        for (List<Entry> bucket : tables[0].values) {
+            if (bucket != null) {
+                for (Entry entry : bucket) {
+                    all.add(entry.point);
+                }
+            }
+        }
+        return all.iterator();
+    }
+
+    /**
+     * Whether an entry shares a bucket with the query in a table before
+     * {@code t}, so it was already checked.
+     */
+    private static boolean seenBefore(Entry entry, long[] keys, int t) {
+        for (int s = 0; s < t; s++) {
+            if (entry.keys[s] == keys[s]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void initProjections(int d) {
+        this.d = d;
+        Random random = new Random(seed);
+        directions = new double[numTables * numHashes * d];
+        offsets = new double[numTables * numHashes];
+        for (int i = 0; i < directions.length; i++) {
+            directions[i] = random.nextGaussian();
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextDouble() * width;
+        }
+    }
+
+    /**
+     * Compute the bucket key of a position in every table.
+     */
+    private void hash(double[] position, long[] keys) {
+        if (position.length != d) {
+            throw new IllegalArgumentException("Expected dimension " + d +
+                    " but got " + position.length);
+        }
+        int projection = 0;
+        for (int t = 0; t < numTables; t++) {
+            long key = t;
+            for (int j = 0; j < numHashes; j++, projection++) {
+                double dot = offsets[projection];
+                int base = projection * d;
+                for (int k = 0; k < d; k++) {
+                    dot += directions[base + k] * position[k];
+                }
+                key = (key ^ (long) Math.floor(dot / width)) *
+                        0x9E3779B97F4A7C15L;
+            }
+            keys[t] = key ^ (key >>> 29);
+        }
+    }
+
+    /**
+     * Indexed point with its bucket key in every table.
+     */
+    private static final class Entry {
+
+        final Point point;
+
+        final long[] keys;
+
+        Entry(Point point, long[] keys) {
+            this.point = point;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Open addressing map from bucket key to bucket, with linear probing
+     * and backward shift deletion, so lookups do not box the keys.
+     */
+    private static final class BucketTable {
+
+        long[] keys = new long[16];
+
+        ArrayList<Entry>[] values = newValues(16);
+
+        int count;  // number of buckets
+
+        ArrayList<Entry> get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != null;
+                 i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        ArrayList<Entry> getOrCreate(long key) {
+            ArrayList<Entry> bucket = get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (2 * (count + 1) > keys.length) {
+                grow();
+            }
+            bucket = new ArrayList<>(2);
+            put(key, bucket);
+            count++;
+            return bucket;
+        }
+
+        void remove(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == null) {
+                return;
+            }
+            // shift back the following entries of the probe sequence
+            int hole = i;
+            for (int j = (i + 1) & mask; values[j] != null;
+                 j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            values[hole] = null;
+            count--;
+        }
+
+        private void put(long key, ArrayList<Entry> bucket) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = bucket;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            ArrayList<Entry>[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = newValues(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static ArrayList<Entry>[] newValues(int capacity) {
+            return (ArrayList<Entry>[]) new ArrayList[capacity];
+        }
+    }
+}
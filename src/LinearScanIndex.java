@@ -0,0 +1,77 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Index without any spatial structure, every query scans all points.
+ */
+public class LinearScanIndex implements NeighborIndex {
+
+    private final List<Point> points;
+
+    private final DistanceMetric metric;
+
+    public LinearScanIndex() {
+        this(StandardMetric.EUCLIDEAN);
+    }
+
+    public LinearScanIndex(final DistanceMetric metric) {
+        this.points = new ArrayList<>();
+        this.metric = metric;
+    }
+
+    @Override
+    public void insert(Point point) {
+        points.add(point);
+    }
+
+    @Override
+    public boolean remove(Point point) {
+        return points.remove(point);
+    }
+
+    @Override
+    public int forEachNeighbor(Point point, double eps,
+                               NeighborVisitor visitor) {
+        int numNeighbors = 0;
+        for (int i = 0; i < points.size(); i++) {
+            final Point p = points.get(i);
+            // include point itself
+            if (metric.withinEps(point.position, p.position, eps)) {
+                visitor.visit(p);
+                numNeighbors++;
+            }
+        }
+        return numNeighbors;
+    }
+
+    @Override
+    public void reorder(SpaceFillingCurve curve) {
+        List<Point> sorted = new ArrayList<>(points.size());
+        for (int i : curve.order(points)) {
+            sorted.add(points.get(i));
+        }
+        points.clear();
+        points.addAll(sorted);
+    }
+
+    @Override
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return points.size();
+    }
+
+    @Override
+    public void clear() {
+        points.clear();
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+        return points.iterator();
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive longs, reused to avoid boxing and allocation.
+ */
+public class LongList {
+
+    private long[] data;
+
+    private int size;
+
+    public LongList() {
+        this(16);
+    }
+
+    public LongList(final int capacity) {
+        this.data = new long[Math.max(capacity, 1)];
+        size = 0;
+    }
+
+    public void add(long value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, data.length * 2);
+        }
+        data[size++] = value;
+    }
+
+    public long get(int i) {
+        return data[i];
+    }
+
+    public void set(int i, long value) {
+        data[i] = value;
+    }
+
+    /**
+     * Remove the element at {@code i} by moving the last element there.
+     *
+     * @param i
+     */
+    public void swapRemove(int i) {
+        data[i] = data[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+}
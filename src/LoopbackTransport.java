@@ -0,0 +1,46 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * In-process transport. Every worker is a thread of this JVM that decodes
+ * the request bytes and encodes its result, exactly as a remote worker
+ * would.
+ */
+public class LoopbackTransport implements PartitionTransport {
+
+    private final ExecutorService[] workers;  // one thread per worker
+
+    public LoopbackTransport(final int numWorkers) {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers must be " +
+                    "positive");
+        }
+
+        this.workers = new ExecutorService[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "partition-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public int getNumWorkers() {
+        return workers.length;
+    }
+
+    @Override
+    public Future<byte[]> send(int worker, byte[] request) {
+        return workers[worker].submit(() -> PartitionWorker.process(request));
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class Main {
@@ -19,7 +21,8 @@ public class Main {
 
 //        /************** Run Batch DBSCAN for Each Point. ***************/
 //        FileWriter batchWriter = new FileWriter(new File(batchOut));
-//        DBSCANCluster batchCluster = new DBSCANCluster(eps, minPts);
+//        DBSCANCluster batchCluster = new DBSCANCluster(eps, minPts,
+//                new GridIndex(eps));
 //        int iter = 0;
 //        List<Point> stream = new ArrayList<>();
 //        batchWriter.write("numOps,time\n");
@@ -42,7 +45,10 @@ public class Main {
 
         /************** Run Incremental DBSCAN. ***************/
         FileWriter incWriter = new FileWriter(new File(incOut));
-        IncDBSCANCluster incCluster = new IncDBSCANCluster(eps, minPts);
+        IncDBSCANCluster incCluster = new IncDBSCANCluster(eps, minPts,
+                new GridIndex(eps));
+        ClusterMetrics metrics = new ClusterMetrics();
+        incCluster.setListener(metrics);
         int iter = 0;
         long start = System.nanoTime();
         incWriter.write("numOps,time\n");
@@ -55,42 +61,29 @@ public class Main {
                 incWriter.write(incCluster.getCntOfNbrSearch() + "," + time
                 + "\n");
 
-                countNumClusters(incCluster.clusterMapping);
+                System.out.println("Number of clusters: " +
+                        incCluster.getNumClusters() + "\n");
             }
             iter++;
         }
 
         incWriter.close();
+        System.out.println(metrics);
 
     }
 
     private static List<Point> readData(String inFileName,
-                                        int numPointsToRead) {
-        List<Point> points = new ArrayList<>();
-        try {
-            Scanner sc = new Scanner(new File(inFileName));
-            int numPoints = 0;
-            while (sc.hasNextLine() && numPoints < numPointsToRead) {
-                String line = sc.nextLine();
-                String[] strs = line.split(",");
-                int d = strs.length;
-                double[] pos = new double[d];
-                for (int i = 0; i < d; i++) {
-                    pos[i] = Double.parseDouble(strs[i]);
-                }
-                Point p = new Point(pos, numPoints, -1);
-                points.add(p);
-                numPoints++;
-            }
-            sc.close();
-        } catch (Exception e) {
-            System.out.println("read input exception");
-        }
+                                        int numPointsToRead)
+            throws IOException {
+        // covtype: new CsvLoader(',', 54) keeps the last column as label
+        CsvLoader loader = new CsvLoader(',', -1, false,
+                Runtime.getRuntime().availableProcessors());
+        List<Point> points = loader.load(Paths.get(inFileName),
+                numPointsToRead);
         System.out.println("Reading data complete, number of points: " + points.size() + "\n");
         return points;
     }
 
-
     private static void countNumClusters(HashMap<Integer, Integer> map) {
         HashSet<Integer> set = new HashSet<>();
         for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
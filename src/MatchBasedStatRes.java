@@ -0,0 +1,6 @@
+/**
+ * Match-based Clustering result.
+ */
+class MatchBasedStatRes {
+    public double f1Score, purity;
+}
@@ -0,0 +1,158 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of eps-neighbor lists of points, kept up to date by the clusterer
+ * as points are inserted and deleted, so a cached point needs no range
+ * query. Memory is capped by the total number of cached entries, the least
+ * recently used lists are evicted first. Lists longer than a maximum
+ * degree, typical of dense regions, are not cached at all.
+ */
+public class NeighborCache {
+
+    private final long maxEntries;  // cap on the sum of list sizes
+
+    private final int maxDegree;  // longest list worth caching
+
+    // neighbor lists in access order, least recently used first
+    private final LinkedHashMap<Point, NeighborList> lists;
+
+    private long numEntries;  // sum of the sizes of cached lists
+
+    private long numHits;
+
+    private long numMisses;
+
+    private long numEvictions;
+
+    public NeighborCache(final long maxEntries) {
+        this(maxEntries, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxEntries maximum total number of cached neighbors
+     * @param maxDegree  maximum length of a cached list
+     */
+    public NeighborCache(final long maxEntries, final int maxDegree) {
+        if (maxEntries < 1 || maxDegree < 1) {
+            throw new IllegalArgumentException("Cache capacity must be " +
+                    "positive");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxDegree = maxDegree;
+        this.lists = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Look up the neighbors of a point.
+     *
+     * @param point
+     * @return cached neighbors (including point itself), or null
+     */
+    NeighborList get(Point point) {
+        NeighborList list = lists.get(point);
+        if (list == null) {
+            numMisses++;
+        } else {
+            numHits++;
+        }
+        return list;
+    }
+
+    /**
+     * Cache the result of a range query.
+     *
+     * @param point     queried point
+     * @param neighbors neighbors (including point itself), copied
+     */
+    void put(Point point, List<Point> neighbors) {
+        if (neighbors.size() > maxDegree) {
+            return;
+        }
+
+        NeighborList list = new NeighborList();
+        list.ensureCapacity(neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            list.add(neighbors.get(i));
+        }
+        invalidate(point);
+        lists.put(point, list);
+        numEntries += list.size();
+        evict();
+    }
+
+    /**
+     * A new point was inserted within eps of {@code point}.
+     */
+    void neighborInserted(Point point, Point newNeighbor) {
+        NeighborList list = lists.get(point);
+        if (list == null) {
+            return;
+        }
+        if (list.size() == maxDegree) {
+            invalidate(point);
+            return;
+        }
+        list.add(newNeighbor);
+        numEntries++;
+        evict();
+    }
+
+    /**
+     * A point within eps of {@code point} was deleted.
+     */
+    void neighborRemoved(Point point, Point oldNeighbor) {
+        NeighborList list = lists.get(point);
+        if (list != null && list.remove(oldNeighbor)) {
+            numEntries--;
+        }
+    }
+
+    /**
+     * Drop the list of a point, e.g. because the point was deleted.
+     */
+    void invalidate(Point point) {
+        NeighborList list = lists.remove(point);
+        if (list != null) {
+            numEntries -= list.size();
+        }
+    }
+
+    public void clear() {
+        lists.clear();
+        numEntries = 0;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Point, NeighborList>> it =
+                lists.entrySet().iterator();
+        while (numEntries > maxEntries && it.hasNext()) {
+            numEntries -= it.next().getValue().size();
+            it.remove();
+            numEvictions++;
+        }
+    }
+
+    public long getNumEntries() {
+        return numEntries;
+    }
+
+    public int getNumLists() {
+        return lists.size();
+    }
+
+    public long getNumHits() {
+        return numHits;
+    }
+
+    public long getNumMisses() {
+        return numMisses;
+    }
+
+    public long getNumEvictions() {
+        return numEvictions;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.List;
+
+/**
+ * Spatial index answering eps-range queries over a growing point set.
+ * Points are inserted one by one, so an incremental clusterer never has to
+ * rebuild the index. Queries do not modify the index, concurrent queries
+ * are safe as long as no point is inserted or removed meanwhile.
+ */
+public interface NeighborIndex extends Iterable<Point> {
+
+    /**
+     * Add a point to the index.
+     *
+     * @param point point to add
+     */
+    void insert(Point point);
+
+    /**
+     * Remove a point from the index.
+     *
+     * @param point point to remove
+     * @return true if the point was indexed
+     */
+    boolean remove(Point point);
+
+    /**
+     * Call {@code visitor} for every indexed point within {@code eps} of
+     * {@code point}. Does not allocate once the index has warmed up.
+     *
+     * @param point   the point to look for
+     * @param eps     radius of the neighborhood
+     * @param visitor callback for each neighbor (including point itself if
+     *                indexed)
+     * @return number of neighbors
+     */
+    int forEachNeighbor(Point point, double eps, NeighborVisitor visitor);
+
+    /**
+     * Return all indexed points within {@code eps} of {@code point}.
+     *
+     * @param point the point to look for
+     * @param eps   radius of the neighborhood
+     * @return neighbors (including point itself if indexed)
+     */
+    default List<Point> getNeighbors(Point point, double eps) {
+        NeighborList neighbors = new NeighborList();
+        forEachNeighbor(point, eps, neighbors);
+        return neighbors;
+    }
+
+    /**
+     * Get the number of indexed points.
+     *
+     * @return
+     */
+    int size();
+
+    /**
+     * Get the distance used by the range queries.
+     *
+     * @return
+     */
+    DistanceMetric getMetric();
+
+    /**
+     * Rearrange the stored points along a space-filling curve, so that a
+     * scan reads neighbors mostly one after the other. The points are not
+     * copied, every reference stays valid. Like an insert, this must not
+     * overlap a query. Does nothing by default, e.g. in trees whose layout
+     * already follows space.
+     *
+     * @param curve order to store the points in
+     */
+    default void reorder(SpaceFillingCurve curve) {
+    }
+
+    /**
+     * Remove all points from the index.
+     */
+    void clear();
+}
@@ -0,0 +1,20 @@
+import java.util.ArrayList;
+
+/**
+ * Reusable list collecting the matches of eps-range queries. Clear it and
+ * pass it to {@link NeighborIndex#forEachNeighbor} again instead of
+ * allocating a new list per query.
+ */
+public class NeighborList extends ArrayList<Point> implements NeighborVisitor {
+
+    private static final long serialVersionUID = 1L;
+
+    public NeighborList() {
+        super();
+    }
+
+    @Override
+    public void visit(Point neighbor) {
+        add(neighbor);
+    }
+}
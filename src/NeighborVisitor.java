@@ -0,0 +1,14 @@
+/**
+ * Callback receiving the matches of an eps-range query.
+ * Indices reuse per-thread scratch space during a query, so a visitor must
+ * not start another query on the same thread.
+ */
+public interface NeighborVisitor {
+
+    /**
+     * Called once for every point within eps of the query point.
+     *
+     * @param neighbor matching point
+     */
+    void visit(Point neighbor);
+}
@@ -0,0 +1,312 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+/**
+ * Incremental DBSCAN clusterer on a {@link PagedPointStore}, for data sets
+ * larger than the heap. Same insertion algorithm as
+ * {@link ColumnarIncDBSCANCluster}; points and their state live in the
+ * pages of a spill file and only the tiles around an insert are loaded, so
+ * the I/O per insert depends on the local density, not on the number of
+ * points. Per-insert scratch is keyed by the points it touches. Clusters
+ * are merged in an int-based {@link DisjointSet}, which stays on the heap.
+ */
+public class PagedIncDBSCANCluster implements Closeable {
+
+    private final PagedPointStore store;  // data warehouse storing all points
+
+    private final double eps;  // maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // minimum number of points needed for a cluster
+
+    final DisjointSet clusterMapping;  // cluster parent tree
+
+    private int cntOfNbrSearch;  // number of "getEpsNeighbors" operations
+    // per incrementally update
+
+    // scratch space reused by every insert
+    private final LongList neighbors = new LongList();  // of the new point
+
+    private final LongList candidates = new LongList();  // q' points
+
+    private final LongList queryBuffer = new LongList();
+
+    private final LongList updateSeed = new LongList();  // UpdSeed_Ins
+
+    private final IntList seedParent = new IntList();  // union-find on seeds
+
+    private final IntList regionHead = new IntList();  // first seed of region
+
+    private final IntList regionNext = new IntList();  // seeds of a region
+
+    private final LongList expandQueue = new LongList();
+
+    private final HashMap<Long, Integer> seedSlot = new HashMap<>();
+
+    private final HashMap<Integer, Integer> clusterSlot = new HashMap<>();
+
+    /**
+     * Cluster with tiles of side 2 eps, an eps-box overlaps at most 2^d
+     * tiles.
+     *
+     * @param eps        radius of the neighborhood
+     * @param minPts     minimum number of neighbors of a core point
+     * @param d          dimension
+     * @param spillFile  scratch file holding the points
+     * @param cacheTiles number of tiles held on the heap
+     * @throws IOException if the spill file cannot be created
+     */
+    public PagedIncDBSCANCluster(final double eps, final int minPts,
+                                 final int d, final Path spillFile,
+                                 final int cacheTiles) throws IOException {
+        this(eps, minPts, new PagedPointStore(spillFile, d, 2.0 * eps,
+                cacheTiles));
+    }
+
+    /**
+     * @param eps    radius of the neighborhood
+     * @param minPts minimum number of neighbors of a core point
+     * @param store  empty store, closed with the clusterer
+     */
+    public PagedIncDBSCANCluster(final double eps, final int minPts,
+                                 final PagedPointStore store) {
+        if (eps <= 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param must be " +
+                    "positive");
+        }
+        if (store == null || store.size() != 0) {
+            throw new IllegalArgumentException("Point store must be empty");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.store = store;
+        this.clusterMapping = new DisjointSet();
+        cntOfNbrSearch = 0;
+    }
+
+    /**
+     * Incrementally update with a new point.
+     *
+     * @param position   coordinates
+     * @param pointIndex point index
+     * @param label      true cluster label
+     * @return id of the new point in the store
+     */
+    public long incrementalUpdate(double[] position, int pointIndex,
+                                  int label) {
+        long newId = store.add(position, pointIndex, label);
+        cntOfNbrSearch = 0;
+
+        // candidates contains q' points.
+        candidates.clear();
+        getEpsNeighbors(newId, neighbors);
+        for (int i = 0; i < neighbors.size(); i++) {
+            long nbr = neighbors.get(i);
+            if (nbr == newId) {
+                store.setEpsNbrNum(newId, neighbors.size());
+                if (neighbors.size() >= minPts) {
+                    candidates.add(newId);
+                }
+            } else {
+                int epsNbrNum = store.getEpsNbrNum(nbr) + 1;
+                store.setEpsNbrNum(nbr, epsNbrNum);
+                if (epsNbrNum == minPts) {
+                    candidates.add(nbr);
+                }
+            }
+        }
+
+        // find UpdSeed_Ins, split into density-connected regions
+        updateSeed.clear();
+        seedParent.clear();
+        seedSlot.clear();
+        clusterSlot.clear();
+        for (int i = 0; i < candidates.size(); i++) {
+            long q_Prime = candidates.get(i);
+            LongList q_Prime_Neighbors = neighbors;
+            if (q_Prime != newId) {
+                getEpsNeighbors(q_Prime, queryBuffer);
+                q_Prime_Neighbors = queryBuffer;
+            }
+            int q_PrimeSlot = addSeed(q_Prime);
+            for (int j = 0; j < q_Prime_Neighbors.size(); j++) {
+                long q = q_Prime_Neighbors.get(j);
+                if (store.getEpsNbrNum(q) >= minPts) {
+                    unionSeeds(q_PrimeSlot, addSeed(q));
+                }
+            }
+        }
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            int clusterIndex = store.getClusterIndex(updateSeed.get(slot));
+            if (clusterIndex != Point.NOISE) {
+                Integer first = clusterSlot.putIfAbsent(
+                        clusterMapping.find(clusterIndex), slot);
+                if (first != null) {
+                    unionSeeds(first, slot);
+                }
+            }
+        }
+
+        // chain the seeds of each region, then update region by region
+        regionHead.clear();
+        regionNext.clear();
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            regionHead.add(-1);
+            regionNext.add(-1);
+        }
+        for (int slot = updateSeed.size() - 1; slot >= 0; slot--) {
+            int root = findSeedRoot(slot);
+            regionNext.set(slot, regionHead.get(root));
+            regionHead.set(root, slot);
+        }
+        for (int slot = 0; slot < updateSeed.size(); slot++) {
+            if (findSeedRoot(slot) == slot) {
+                updateRegion(regionHead.get(slot));
+            }
+        }
+
+        // p is a border point of an existing core point, or noise
+        if (store.getClusterIndex(newId) == Point.NOISE) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                long nbr = neighbors.get(i);
+                if (store.getEpsNbrNum(nbr) >= minPts) {
+                    int clusterIndex = store.getClusterIndex(nbr);
+                    store.setClusterIndex(newId, clusterIndex);
+                    clusterMapping.addMembers(clusterIndex, 1);
+                    break;
+                }
+            }
+        }
+        return newId;
+    }
+
+    /**
+     * Get the root cluster id of a stored point.
+     *
+     * @param id
+     * @return cluster id, or Point.NOISE
+     */
+    public int getClusterIndex(long id) {
+        int clusterIndex = store.getClusterIndex(id);
+        return clusterIndex == Point.NOISE ? Point.NOISE :
+                clusterMapping.find(clusterIndex);
+    }
+
+    /**
+     * Get the number of clusters holding at least one point.
+     *
+     * @return
+     */
+    public int getNumClusters() {
+        return clusterMapping.numLive();
+    }
+
+    /**
+     * Get the point store.
+     *
+     * @return
+     */
+    public PagedPointStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the number of neighbor search operations.
+     *
+     * @return
+     */
+    public int getCntOfNbrSearch() {
+        return cntOfNbrSearch;
+    }
+
+    /**
+     * Close the store and delete its spill file.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    /**
+     * Update the clustering of the region whose seeds are chained from
+     * {@code head}.
+     */
+    private void updateRegion(int head) {
+        // merge the clusters of the seeds, or create a new one
+        int clusterId = Point.NOISE;
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            int clusterIndex = store.getClusterIndex(updateSeed.get(slot));
+            if (clusterIndex != Point.NOISE) {
+                clusterId = clusterId == Point.NOISE ?
+                        clusterMapping.find(clusterIndex) :
+                        clusterMapping.union(clusterId, clusterIndex);
+            }
+        }
+        if (clusterId == Point.NOISE) {
+            clusterId = clusterMapping.makeSet();
+        }
+
+        // expand the cluster over all density-reachable noise points
+        expandQueue.clear();
+        for (int slot = head; slot != -1; slot = regionNext.get(slot)) {
+            getEpsNeighbors(updateSeed.get(slot), queryBuffer);
+            for (int i = 0; i < queryBuffer.size(); i++) {
+                expandQueue.add(queryBuffer.get(i));
+            }
+        }
+        for (int index = 0; index < expandQueue.size(); index++) {
+            long current = expandQueue.get(index);
+            if (store.getClusterIndex(current) == Point.NOISE) {
+                store.setClusterIndex(current, clusterId);
+                clusterMapping.addMembers(clusterId, 1);
+                if (getEpsNeighbors(current, queryBuffer) >= minPts) {
+                    for (int i = 0; i < queryBuffer.size(); i++) {
+                        long currentNbr = queryBuffer.get(i);
+                        if (store.getClusterIndex(currentNbr) ==
+                                Point.NOISE) {
+                            expandQueue.add(currentNbr);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private int addSeed(long id) {
+        Integer slot = seedSlot.get(id);
+        if (slot != null) {
+            return slot;
+        }
+        slot = updateSeed.size();
+        seedSlot.put(id, slot);
+        updateSeed.add(id);
+        seedParent.add(slot);
+        return slot;
+    }
+
+    private int findSeedRoot(int slot) {
+        while (seedParent.get(slot) != slot) {
+            seedParent.set(slot, seedParent.get(seedParent.get(slot)));
+            slot = seedParent.get(slot);
+        }
+        return slot;
+    }
+
+    private void unionSeeds(int a, int b) {
+        int rootA = findSeedRoot(a);
+        int rootB = findSeedRoot(b);
+        if (rootA != rootB) {
+            seedParent.set(rootB, rootA);
+        }
+    }
+
+    private int getEpsNeighbors(long id, LongList out) {
+        cntOfNbrSearch++;
+        return store.getNeighbors(id, eps, out);
+    }
+}
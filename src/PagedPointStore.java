@@ -0,0 +1,445 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Point store spilling to a file, for more points than the heap can hold.
+ * Space is cut into tiles, cubes of side {@code tileSide}. The points of a
+ * tile live in a chain of fixed-size pages of a memory-mapped file; at most
+ * {@code cacheTiles} tiles are held on the heap, each as a
+ * {@link PointStore}, and the least recently used one is evicted after
+ * writing back the pages that changed, so relabelling one point costs one
+ * page write, not the whole chain of its tile. A neighbor query only loads
+ * the tiles overlapping the box around the eps-ball.
+ * <p>
+ * Ids are {@code tile << 32 | slot} and never change. Only the tile
+ * directory, a few ints per tile, stays on the heap. The file is scratch
+ * space, it is deleted on close. I/O errors after construction are thrown
+ * as {@link UncheckedIOException}.
+ */
+public class PagedPointStore implements Closeable {
+
+    private static final int PAGE_BYTES = 1 << 16;
+
+    private static final long SEGMENT_BYTES = 1L << 26;  // per mapping
+
+    private final int d;  // dimension
+
+    private final double tileSide;  // side length of a tile
+
+    private final int cacheTiles;  // tiles held on the heap
+
+    private final int recordBytes;  // d coordinates and 4 ints per point
+
+    private final int pagePoints;  // points per page
+
+    private final int pagesPerSegment;
+
+    private final Path file;
+
+    private final FileChannel channel;
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private final HashMap<GridCell, Integer> tileIds = new HashMap<>();
+
+    private final ArrayList<Tile> tiles = new ArrayList<>();
+
+    private final LinkedHashMap<Integer, PointStore> cache;  // LRU order
+
+    private int numPages;  // pages allocated in the file
+
+    private long size;  // number of stored points
+
+    private long pageReads;  // pages read from the file
+
+    private long pageWrites;  // pages written to the file
+
+    // scratch of the queries
+    private final GridCell probe;
+
+    private final int[] lo;
+
+    private final int[] hi;
+
+    private final double[] center;
+
+    /**
+     * @param file       spill file, overwritten if it exists
+     * @param d          dimension
+     * @param tileSide   side length of a tile, at least twice the query
+     *                   radius keeps a query within 2^d tiles
+     * @param cacheTiles number of tiles held on the heap
+     * @throws IOException if the file cannot be created
+     */
+    public PagedPointStore(final Path file, final int d,
+                           final double tileSide, final int cacheTiles)
+            throws IOException {
+        if (d < 1 || cacheTiles < 1) {
+            throw new IllegalArgumentException("Dimension and cache size " +
+                    "must be positive");
+        }
+        if (tileSide <= 0.0) {
+            throw new IllegalArgumentException("Tile side must be positive");
+        }
+
+        this.d = d;
+        this.tileSide = tileSide;
+        this.cacheTiles = cacheTiles;
+        this.recordBytes = 8 * d + 16;
+        this.pagePoints = Math.max(1, PAGE_BYTES / recordBytes);
+        this.pagesPerSegment = (int) (SEGMENT_BYTES /
+                ((long) pagePoints * recordBytes));
+        if (pagesPerSegment < 1) {
+            throw new IllegalArgumentException("Dimension " + d +
+                    " is too large");
+        }
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.cache = new LinkedHashMap<Integer, PointStore>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Integer, PointStore> eldest) {
+                if (size() <= PagedPointStore.this.cacheTiles) {
+                    return false;
+                }
+                writeBack(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.probe = new GridCell(new int[d]);
+        this.lo = new int[d];
+        this.hi = new int[d];
+        this.center = new double[d];
+    }
+
+    /**
+     * Add a point, as noise with one neighbor.
+     *
+     * @param position   coordinates
+     * @param pointIndex point index
+     * @param label      true cluster label
+     * @return id of the point
+     */
+    public long add(double[] position, int pointIndex, int label) {
+        if (position.length != d) {
+            throw new IllegalArgumentException("Expected dimension " + d +
+                    " but got " + position.length);
+        }
+        GridCell key = GridCell.of(position, 0, d, tileSide);
+        Integer tileId = tileIds.get(key);
+        PointStore rows;
+        if (tileId == null) {
+            tileId = tiles.size();
+            tileIds.put(key, tileId);
+            tiles.add(new Tile());
+            rows = new PointStore(d);
+            cache.put(tileId, rows);
+        } else {
+            rows = tile(tileId);
+        }
+        Tile tile = tiles.get(tileId);
+        int slot = rows.add(position, pointIndex, label);
+        rows.clusterIndex[slot] = Point.NOISE;
+        rows.epsNbrNum[slot] = 1;
+        tile.size++;
+        markDirty(tile, slot);
+        size++;
+        return (long) tileId << 32 | slot;
+    }
+
+    /**
+     * Find all stored points within {@code eps} of point {@code id}, by the
+     * euclidean distance.
+     *
+     * @param id        the point to look for
+     * @param eps       radius of the neighborhood
+     * @param neighbors cleared and filled with neighbor ids (including id)
+     * @return number of neighbors
+     */
+    public int getNeighbors(long id, double eps, LongList neighbors) {
+        neighbors.clear();
+        PointStore own = tile(tileOf(id));
+        System.arraycopy(own.coords, slotOf(id) * d, center, 0, d);
+        for (int k = 0; k < d; k++) {
+            lo[k] = (int) Math.floor((center[k] - eps) / tileSide);
+            hi[k] = (int) Math.floor((center[k] + eps) / tileSide);
+            probe.coords[k] = lo[k];
+        }
+
+        while (true) {
+            probe.rehash();
+            Integer tileId = tileIds.get(probe);
+            if (tileId != null) {
+                PointStore rows = tile(tileId);
+                for (int slot = 0; slot < rows.size(); slot++) {
+                    if (StandardMetric.EUCLIDEAN.withinEps(center, 0,
+                            rows.coords, slot * d, d, eps)) {
+                        neighbors.add((long) tileId << 32 | slot);
+                    }
+                }
+            }
+
+            // next tile in odometer order
+            int k = 0;
+            while (k < d && probe.coords[k] == hi[k]) {
+                probe.coords[k] = lo[k];
+                k++;
+            }
+            if (k == d) {
+                return neighbors.size();
+            }
+            probe.coords[k]++;
+        }
+    }
+
+    public int getClusterIndex(long id) {
+        return tile(tileOf(id)).clusterIndex[slotOf(id)];
+    }
+
+    public void setClusterIndex(long id, int clusterIndex) {
+        int tileId = tileOf(id);
+        tile(tileId).clusterIndex[slotOf(id)] = clusterIndex;
+        markDirty(tiles.get(tileId), slotOf(id));
+    }
+
+    public int getEpsNbrNum(long id) {
+        return tile(tileOf(id)).epsNbrNum[slotOf(id)];
+    }
+
+    public void setEpsNbrNum(long id, int epsNbrNum) {
+        int tileId = tileOf(id);
+        tile(tileId).epsNbrNum[slotOf(id)] = epsNbrNum;
+        markDirty(tiles.get(tileId), slotOf(id));
+    }
+
+    public int getPointIndex(long id) {
+        return tile(tileOf(id)).pointIndex[slotOf(id)];
+    }
+
+    public int getLabel(long id) {
+        return tile(tileOf(id)).label[slotOf(id)];
+    }
+
+    /**
+     * Get the ids of the points of every tile, tile by tile.
+     *
+     * @return
+     */
+    public Iterator<Long> ids() {
+        return new Iterator<Long>() {
+            private int tileId;
+
+            private int slot;
+
+            @Override
+            public boolean hasNext() {
+                while (tileId < tiles.size() &&
+                        slot >= tiles.get(tileId).size) {
+                    tileId++;
+                    slot = 0;
+                }
+                return tileId < tiles.size();
+            }
+
+            @Override
+            public Long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (long) tileId << 32 | slot++;
+            }
+        };
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int dimension() {
+        return d;
+    }
+
+    /**
+     * Get the number of non-empty tiles.
+     *
+     * @return
+     */
+    public int getNumTiles() {
+        return tiles.size();
+    }
+
+    /**
+     * Get the number of pages read from the file so far.
+     *
+     * @return
+     */
+    public long getPageReads() {
+        return pageReads;
+    }
+
+    /**
+     * Get the number of pages written to the file so far.
+     *
+     * @return
+     */
+    public long getPageWrites() {
+        return pageWrites;
+    }
+
+    /**
+     * Write every changed tile of the cache back to the file.
+     */
+    public void flush() {
+        for (Map.Entry<Integer, PointStore> entry : cache.entrySet()) {
+            writeBack(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Close and delete the spill file.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        cache.clear();
+        segments.clear();
+        channel.close();
+        Files.deleteIfExists(file);
+    }
+
+    private static int tileOf(long id) {
+        return (int) (id >>> 32);
+    }
+
+    private static int slotOf(long id) {
+        return (int) id;
+    }
+
+    /**
+     * Get the points of a tile, loading it if it is not cached.
+     */
+    private PointStore tile(int tileId) {
+        PointStore rows = cache.get(tileId);
+        if (rows != null) {
+            return rows;
+        }
+
+        Tile tile = tiles.get(tileId);
+        rows = new PointStore(d, Math.max(1, tile.size));
+        double[] position = new double[d];
+        for (int slot = 0; slot < tile.size; slot++) {
+            if (slot % pagePoints == 0) {
+                pageReads++;
+            }
+            MappedByteBuffer segment = segment(tile.pages.get(
+                    slot / pagePoints));
+            int offset = offset(tile.pages.get(slot / pagePoints)) +
+                    slot % pagePoints * recordBytes;
+            for (int k = 0; k < d; k++) {
+                position[k] = segment.getDouble(offset + 8 * k);
+            }
+            offset += 8 * d;
+            rows.add(position, segment.getInt(offset),
+                    segment.getInt(offset + 4));
+            rows.clusterIndex[slot] = segment.getInt(offset + 8);
+            rows.epsNbrNum[slot] = segment.getInt(offset + 12);
+        }
+        tile.dirtyPages = null;
+        cache.put(tileId, rows);
+        return rows;
+    }
+
+    private void markDirty(Tile tile, int slot) {
+        if (tile.dirtyPages == null) {
+            tile.dirtyPages = new BitSet();
+        }
+        tile.dirtyPages.set(slot / pagePoints);
+    }
+
+    /**
+     * Write the changed pages of a cached tile, allocating pages at the end
+     * of the file as the tile grows.
+     */
+    private void writeBack(int tileId, PointStore rows) {
+        Tile tile = tiles.get(tileId);
+        if (tile.dirtyPages == null) {
+            return;
+        }
+        while (tile.pages.size() * pagePoints < rows.size()) {
+            tile.pages.add(numPages++);
+        }
+        for (int page = tile.dirtyPages.nextSetBit(0); page >= 0;
+             page = tile.dirtyPages.nextSetBit(page + 1)) {
+            pageWrites++;
+            int end = Math.min(rows.size(), (page + 1) * pagePoints);
+            for (int slot = page * pagePoints; slot < end; slot++) {
+                writeRecord(tile, rows, slot);
+            }
+        }
+        tile.dirtyPages = null;
+    }
+
+    private void writeRecord(Tile tile, PointStore rows, int slot) {
+        int page = tile.pages.get(slot / pagePoints);
+        MappedByteBuffer segment = segment(page);
+        int offset = offset(page) + slot % pagePoints * recordBytes;
+        for (int k = 0; k < d; k++) {
+            segment.putDouble(offset + 8 * k, rows.coords[slot * d + k]);
+        }
+        offset += 8 * d;
+        segment.putInt(offset, rows.pointIndex[slot]);
+        segment.putInt(offset + 4, rows.label[slot]);
+        segment.putInt(offset + 8, rows.clusterIndex[slot]);
+        segment.putInt(offset + 12, rows.epsNbrNum[slot]);
+    }
+
+    /**
+     * Get the mapped segment holding a page, mapping new segments at the
+     * end of the file as needed.
+     */
+    private MappedByteBuffer segment(int page) {
+        int index = page / pagesPerSegment;
+        try {
+            while (segments.size() <= index) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE,
+                        segments.size() * SEGMENT_BYTES, SEGMENT_BYTES));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return segments.get(index);
+    }
+
+    private int offset(int page) {
+        return page % pagesPerSegment * pagePoints * recordBytes;
+    }
+
+    /**
+     * Directory entry of a tile.
+     */
+    private static final class Tile {
+
+        final IntList pages = new IntList(1);  // pages in slot order
+
+        int size;  // number of points
+
+        BitSet dirtyPages;  // pages the cached copy changed, or null
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Pair-counting Clustering result.
+ */
+class PairwiseMetrics {
+    public double jaccard, randStat, fowlkesMallow;
+}
@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel batch DBSCAN clusterer.
+ * Neighbor counts are computed in parallel, core points are joined with a
+ * lock-free union-find and border points are assigned at the end. Cluster
+ * ids are numbered like {@link DBSCANCluster} does, so both give the same
+ * labels.
+ */
+public class ParallelDBSCANCluster {
+
+    private final double eps;  // Maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // Minimum number of points needed for a cluster
+
+    private final int numThreads;  // number of worker threads
+
+    private final NeighborIndex index;  // index over the points to cluster
+
+    private int clusterGlobalID; // cluster unique ID, start from 0
+
+    HashMap<Integer, Integer> clusterMapping;  // cluster parent tree
+
+    List<Point> pointsToCluster;  // clustered copies of the input points
+
+    public ParallelDBSCANCluster(final double eps, final int minPts,
+                                 final int numThreads) {
+        this(eps, minPts, numThreads, new LinearScanIndex());
+    }
+
+    public ParallelDBSCANCluster(final double eps, final int minPts,
+                                 final int numThreads,
+                                 final NeighborIndex index) {
+        if (eps < 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param cannot be " +
+                    "negative");
+        }
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads must be " +
+                    "positive");
+        }
+        if (index == null) {
+            throw new IllegalArgumentException("Neighbor index cannot be " +
+                    "null");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.numThreads = numThreads;
+        this.index = index;
+        this.clusterMapping = new HashMap<>();
+        this.pointsToCluster = new ArrayList<>();
+        clusterGlobalID = 0;
+    }
+
+    /**
+     * Parallel DBSCAN clustering algorithm.
+     * The clustering result is each point is labelled
+     * with either a cluster index or noise.
+     *
+     * @param points points to cluster
+     */
+    public void cluster(final List<Point> points) {
+        clusterGlobalID = 0;
+        clusterMapping.clear();
+        index.clear();
+
+        // copy points to a new list to cluster (deep copy), the index is
+        // only read from the worker threads
+        pointsToCluster = new ArrayList<>();
+        IdentityHashMap<Point, Integer> positions = new IdentityHashMap<>();
+        for (Point p : points) {
+            Point copy = new Point(p);
+            positions.put(copy, pointsToCluster.size());
+            pointsToCluster.add(copy);
+            index.insert(copy);
+        }
+        final int n = pointsToCluster.size();
+
+        // parent of each point, roots are the smallest index of their tree
+        final AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        final int[] clusterRoot = new int[n];
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            // step 1: neighbor counts and core flags
+            runParallel(pool, n, i -> {
+                Point point = pointsToCluster.get(i);
+                point.epsNbrNum = index.getNeighbors(point, eps).size();
+                point.visited = true;
+                parent.set(i, i);
+            });
+
+            // step 2: join neighboring core points
+            runParallel(pool, n, i -> {
+                Point point = pointsToCluster.get(i);
+                if (point.epsNbrNum < minPts) {
+                    return;
+                }
+                for (Point nbr : index.getNeighbors(point, eps)) {
+                    int j = positions.get(nbr);
+                    if (j < i && nbr.epsNbrNum >= minPts) {
+                        union(parent, i, j);
+                    }
+                }
+            });
+
+            // step 3: core points take the root of their tree, border
+            // points the smallest root among their core neighbors, which
+            // is the cluster that reaches them first in DBSCANCluster
+            runParallel(pool, n, i -> {
+                Point point = pointsToCluster.get(i);
+                if (point.epsNbrNum >= minPts) {
+                    clusterRoot[i] = find(parent, i);
+                    return;
+                }
+                int root = Point.NOISE;
+                for (Point nbr : index.getNeighbors(point, eps)) {
+                    if (nbr.epsNbrNum >= minPts) {
+                        int nbrRoot = find(parent, positions.get(nbr));
+                        if (root == Point.NOISE || nbrRoot < root) {
+                            root = nbrRoot;
+                        }
+                    }
+                }
+                clusterRoot[i] = root;
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        // number clusters in the order of their smallest core point
+        int[] clusterOfRoot = new int[n];
+        for (int i = 0; i < n; i++) {
+            Point point = pointsToCluster.get(i);
+            if (point.epsNbrNum >= minPts && clusterRoot[i] == i) {
+                clusterOfRoot[i] = clusterGlobalID;
+                clusterMapping.put(clusterGlobalID, clusterGlobalID);
+                clusterGlobalID++;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            pointsToCluster.get(i).clusterIndex = clusterRoot[i] ==
+                    Point.NOISE ? Point.NOISE : clusterOfRoot[clusterRoot[i]];
+        }
+    }
+
+    /**
+     * Run {@code task} for indices 0 to n - 1 on the pool and wait.
+     */
+    private static void runParallel(ForkJoinPool pool, int n,
+                                    IntConsumer task) {
+        try {
+            pool.submit(() -> IntStream.range(0, n).parallel().forEach(task))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Clustering interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Clustering failed", e.getCause());
+        }
+    }
+
+    /**
+     * Find root with path halving, concurrent finds only shortcut paths.
+     */
+    private static int find(AtomicIntegerArray parent, int i) {
+        while (true) {
+            int p = parent.get(i);
+            if (p == i) {
+                return i;
+            }
+            int grandParent = parent.get(p);
+            if (p != grandParent) {
+                parent.compareAndSet(i, p, grandParent);
+            }
+            i = p;
+        }
+    }
+
+    /**
+     * Link the root with the larger index under the smaller one, retrying
+     * when another thread changed a root meanwhile.
+     */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a == b) {
+                return;
+            }
+            int small = Math.min(a, b);
+            int large = Math.max(a, b);
+            if (parent.compareAndSet(large, large, small)) {
+                return;
+            }
+        }
+    }
+}
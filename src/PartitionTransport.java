@@ -0,0 +1,30 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+/**
+ * Channel between a {@link PartitionedDBSCANCluster} and its workers.
+ * Requests and responses are opaque byte messages in the format of
+ * {@link PartitionWorker}, so a transport only has to move bytes: within
+ * the JVM, to local worker processes, or over the network.
+ */
+public interface PartitionTransport extends Closeable {
+
+    /**
+     * Get the number of workers behind the transport.
+     *
+     * @return
+     */
+    int getNumWorkers();
+
+    /**
+     * Send a request to a worker. A worker may be given several requests,
+     * it answers them in order.
+     *
+     * @param worker  worker between 0 and getNumWorkers() - 1
+     * @param request encoded partition
+     * @return future encoded result of the partition
+     * @throws IOException if the request cannot be sent
+     */
+    Future<byte[]> send(int worker, byte[] request) throws IOException;
+}
@@ -0,0 +1,191 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Worker clustering one partition of a {@link PartitionedDBSCANCluster}.
+ * Big-endian message layout:
+ * <pre>
+ * request:  int magic 'PDBS', double eps, int minPts, int dimension d,
+ *           int number of points n, double[n * d] row-major coordinates
+ * response: int n, int[n] local cluster indices, int[n] epsNbrNum,
+ *           int[n] number of adjacent clusters of every point,
+ *           int[] adjacent clusters, point after point
+ * </pre>
+ * The partition is clustered by batch DBSCAN on a columnar store. The
+ * adjacent clusters of a point are the distinct local clusters with a core
+ * point within eps of it, so a core point has exactly its own; a halo
+ * point may touch several clusters while holding a single label. Run as a
+ * program, the worker answers length-prefixed requests read from standard
+ * input on standard output until the input is closed.
+ */
+public class PartitionWorker {
+
+    static final int MAGIC = 0x50444253;  // "PDBS"
+
+    // largest message, the size limit of a Java array
+    private static final int MAX_MESSAGE_BYTES = Integer.MAX_VALUE - 8;
+
+    private PartitionWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                System.in, 1 << 16));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                System.out, 1 << 16));
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            byte[] request = new byte[length];
+            in.readFully(request);
+            byte[] response = process(request);
+            out.writeInt(response.length);
+            out.write(response);
+            out.flush();
+        }
+    }
+
+    /**
+     * Encode a partition as a request.
+     *
+     * @param eps    radius of the neighborhood
+     * @param minPts minimum number of neighbors of a core point
+     * @param store  points of the partition
+     * @return
+     * @throws IOException if the partition is too large for one message
+     */
+    static byte[] encodeRequest(double eps, int minPts, PointStore store)
+            throws IOException {
+        int n = store.size();
+        int d = store.dimension();
+        long length = 24 + 8L * n * d;
+        if (length > MAX_MESSAGE_BYTES) {
+            throw new IOException("Partition of " + n + " points in " + d +
+                    " dimensions needs " + length + " bytes, more than " +
+                    "one message holds; use more partitions");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                (int) length);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeDouble(eps);
+        out.writeInt(minPts);
+        out.writeInt(d);
+        out.writeInt(n);
+        for (int i = 0; i < n * d; i++) {
+            out.writeDouble(store.coords[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Cluster the partition of a request.
+     *
+     * @param request
+     * @return response
+     * @throws IOException if the request is malformed
+     */
+    static byte[] process(byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                request));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a partition request");
+        }
+        double eps = in.readDouble();
+        int minPts = in.readInt();
+        int d = in.readInt();
+        int n = in.readInt();
+        if (d < 1 || n < 0 || request.length != 24 + 8L * n * d) {
+            throw new IOException("Malformed partition request");
+        }
+
+        PointStore store = new PointStore(d, Math.max(n, 1));
+        double[] position = new double[d];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < d; k++) {
+                position[k] = in.readDouble();
+            }
+            store.add(position, i, -1);
+        }
+        new DBSCANCluster(eps, minPts).cluster(store);
+        IntList adjacent = new IntList();
+        int[] numAdjacent = adjacentClusters(store, eps, minPts, adjacent);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4 + 12 * n +
+                4 * adjacent.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) {
+            out.writeInt(store.clusterIndex[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.writeInt(store.epsNbrNum[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            out.writeInt(numAdjacent[i]);
+        }
+        for (int i = 0; i < adjacent.size(); i++) {
+            out.writeInt(adjacent.get(i));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Collect the distinct clusters of the core points within eps of every
+     * point of a clustered store.
+     *
+     * @param adjacent filled with the clusters, point after point
+     * @return number of clusters of every point
+     */
+    private static int[] adjacentClusters(PointStore store, double eps,
+                                          int minPts, IntList adjacent) {
+        int n = store.size();
+        int[] numAdjacent = new int[n];
+        StoreGridIndex grid = null;
+        IntList neighbors = new IntList();
+        for (int i = 0; i < n; i++) {
+            int start = adjacent.size();
+            if (store.epsNbrNum[i] >= minPts) {
+                // every core neighbor was expanded into the same cluster
+                adjacent.add(store.clusterIndex[i]);
+            } else if (store.clusterIndex[i] != Point.NOISE) {
+                if (grid == null) {
+                    grid = new StoreGridIndex(store, eps > 0.0 ? eps : 1.0);
+                    for (int id = 0; id < n; id++) {
+                        grid.insert(id);
+                    }
+                }
+                grid.getNeighbors(i, eps, neighbors);
+                for (int j = 0; j < neighbors.size(); j++) {
+                    int nbr = neighbors.get(j);
+                    if (store.epsNbrNum[nbr] >= minPts &&
+                            !contains(adjacent, start,
+                                    store.clusterIndex[nbr])) {
+                        adjacent.add(store.clusterIndex[nbr]);
+                    }
+                }
+            }
+            numAdjacent[i] = adjacent.size() - start;
+        }
+        return numAdjacent;
+    }
+
+    private static boolean contains(IntList list, int from, int value) {
+        for (int i = from; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,478 @@
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Partitioned batch DBSCAN clusterer.
+ * The space is cut into KD partitions of equal point counts. Each
+ * partition is sent through a {@link PartitionTransport} to a worker,
+ * together with a halo of the points within eps of it, and clustered
+ * there by batch DBSCAN. Local clusters are merged through a global
+ * union-find: a core point, whose neighbor count is exact in the partition
+ * owning it, joins every local cluster with a core point within eps of it,
+ * in every partition holding it. This follows every core-core edge, also
+ * those between halo points that are not core locally. Border points take
+ * the label of their owner, or of any partition that clusters them.
+ * <p>
+ * At most one partition per worker is in flight, so the coordinator holds
+ * the points and the labels, but the encoded copies of a few partitions
+ * only.
+ */
+public class PartitionedDBSCANCluster {
+
+    private final double eps;  // Maximum radius of the neighborhood to be
+    // considered
+
+    private final int minPts;  // Minimum number of points needed for a cluster
+
+    private final int numPartitions;  // number of KD partitions
+
+    private final PartitionTransport transport;  // channel to the workers
+
+    List<Point> pointsToCluster;  // clustered copies of the input points
+
+    private int numClusters;  // clusters found by the last run
+
+    private long numHaloPoints;  // replicated points sent by the last run
+
+    public PartitionedDBSCANCluster(final double eps, final int minPts,
+                                    final int numPartitions,
+                                    final PartitionTransport transport) {
+        if (eps < 0.0 || minPts < 1) {
+            throw new IllegalArgumentException("DBSCAN param cannot be " +
+                    "negative");
+        }
+        if (numPartitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must " +
+                    "be positive");
+        }
+        if (transport == null) {
+            throw new IllegalArgumentException("Transport cannot be null");
+        }
+
+        this.eps = eps;
+        this.minPts = minPts;
+        this.numPartitions = numPartitions;
+        this.transport = transport;
+        this.pointsToCluster = new ArrayList<>();
+    }
+
+    /**
+     * Partitioned DBSCAN clustering algorithm.
+     * The clustering result is each point is labelled
+     * with either a cluster index or noise.
+     *
+     * @param points points to cluster
+     * @throws IOException if a worker fails
+     */
+    public void cluster(final List<Point> points) throws IOException {
+        pointsToCluster = new ArrayList<>(points.size());
+        for (Point p : points) {
+            pointsToCluster.add(new Point(p));
+        }
+        numClusters = 0;
+        numHaloPoints = 0;
+        int n = pointsToCluster.size();
+        if (n == 0) {
+            return;
+        }
+
+        // cut the space, every leaf owns a range of order
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        List<Leaf> leaves = new ArrayList<>();
+        Node root = build(order, 0, n, Math.min(numPartitions, n), leaves);
+
+        // partition members: owned points first, then the halo
+        int numLeaves = leaves.size();
+        IntList[] members = new IntList[numLeaves];
+        int[] owner = new int[n];
+        for (int r = 0; r < numLeaves; r++) {
+            Leaf leaf = leaves.get(r);
+            members[r] = new IntList();
+            for (int i = leaf.lo; i < leaf.hi; i++) {
+                members[r].add(order[i]);
+                owner[order[i]] = r;
+            }
+        }
+        IntList near = new IntList();
+        for (int i = 0; i < n; i++) {
+            near.clear();
+            collectLeaves(root, pointsToCluster.get(i).position, near);
+            for (int j = 0; j < near.size(); j++) {
+                if (near.get(j) != owner[i]) {
+                    members[near.get(j)].add(i);
+                    numHaloPoints++;
+                }
+            }
+        }
+
+        // cluster the partitions on the workers, one request in flight per
+        // worker: a partition is encoded when it is sent and its payload
+        // is dropped once it is answered
+        int numWorkers = transport.getNumWorkers();
+        Deque<Future<byte[]>> inFlight = new ArrayDeque<>(numWorkers);
+        Result[] results = new Result[numLeaves];
+        int numDone = 0;
+        for (int r = 0; r < numLeaves; r++) {
+            if (inFlight.size() == numWorkers) {
+                results[numDone] = decodeResult(await(inFlight.poll()),
+                        members[numDone].size(), numDone);
+                numDone++;
+            }
+            inFlight.add(transport.send(r % numWorkers,
+                    encodeRequest(members[r])));
+        }
+        while (!inFlight.isEmpty()) {
+            results[numDone] = decodeResult(await(inFlight.poll()),
+                    members[numDone].size(), numDone);
+            numDone++;
+        }
+
+        merge(leaves, members, results);
+    }
+
+    /**
+     * Get the number of clusters found by the last run.
+     *
+     * @return
+     */
+    public int getNumClusters() {
+        return numClusters;
+    }
+
+    /**
+     * Get the number of halo points sent to the workers by the last run,
+     * replicas of points owned by another partition.
+     *
+     * @return
+     */
+    public long getNumHaloPoints() {
+        return numHaloPoints;
+    }
+
+    /**
+     * Join the local clusters through a global union-find, and label the
+     * points with dense global cluster ids.
+     */
+    private void merge(List<Leaf> leaves, IntList[] members,
+                       Result[] results) {
+        int n = pointsToCluster.size();
+
+        // neighbor counts are exact in the owning partition only
+        for (int r = 0; r < leaves.size(); r++) {
+            int numOwned = leaves.get(r).hi - leaves.get(r).lo;
+            for (int j = 0; j < numOwned; j++) {
+                pointsToCluster.get(members[r].get(j)).epsNbrNum =
+                        results[r].epsNbrNum[j];
+            }
+        }
+
+        DisjointSet clusterMapping = new DisjointSet();
+        int[] coreCluster = new int[n];  // a global cluster of a core point
+        int[] ownerCluster = new int[n];  // cluster in the owning partition
+        int[] anyCluster = new int[n];  // cluster in another partition
+        Arrays.fill(coreCluster, -1);
+        Arrays.fill(ownerCluster, -1);
+        Arrays.fill(anyCluster, -1);
+        for (int r = 0; r < leaves.size(); r++) {
+            Result result = results[r];
+            int offset = clusterMapping.size();
+            int numLocal = 0;
+            for (int label : result.labels) {
+                numLocal = Math.max(numLocal, label + 1);
+            }
+            for (int c = 0; c < numLocal; c++) {
+                clusterMapping.makeSet();
+            }
+
+            int numOwned = leaves.get(r).hi - leaves.get(r).lo;
+            for (int j = 0; j < members[r].size(); j++) {
+                if (result.labels[j] == Point.NOISE) {
+                    continue;
+                }
+                int i = members[r].get(j);
+                int cluster = offset + result.labels[j];
+                if (pointsToCluster.get(i).epsNbrNum >= minPts) {
+                    // a global core point links every adjacent cluster
+                    for (int a = result.adjacentStart[j];
+                         a < result.adjacentStart[j + 1]; a++) {
+                        int adjacent = offset + result.adjacent[a];
+                        if (coreCluster[i] < 0) {
+                            coreCluster[i] = adjacent;
+                        } else {
+                            clusterMapping.union(coreCluster[i], adjacent);
+                        }
+                    }
+                }
+                if (j < numOwned) {
+                    ownerCluster[i] = cluster;
+                } else if (anyCluster[i] < 0) {
+                    anyCluster[i] = cluster;
+                }
+            }
+        }
+
+        int[] denseId = new int[clusterMapping.size()];
+        Arrays.fill(denseId, -1);
+        for (int i = 0; i < n; i++) {
+            int cluster = ownerCluster[i] >= 0 ? ownerCluster[i] :
+                    anyCluster[i];
+            Point p = pointsToCluster.get(i);
+            if (cluster < 0) {
+                p.clusterIndex = Point.NOISE;
+                continue;
+            }
+            int root = clusterMapping.find(cluster);
+            if (denseId[root] < 0) {
+                denseId[root] = numClusters++;
+            }
+            p.clusterIndex = denseId[root];
+        }
+    }
+
+    /**
+     * Build the KD partitions of order[lo, hi) by median cuts along the
+     * widest dimension.
+     */
+    private Node build(int[] order, int lo, int hi, int parts,
+                       List<Leaf> leaves) {
+        int d = pointsToCluster.get(0).position.length;
+        double[] min = new double[d];
+        double[] max = new double[d];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = lo; i < hi; i++) {
+            double[] position = pointsToCluster.get(order[i]).position;
+            for (int k = 0; k < d; k++) {
+                min[k] = Math.min(min[k], position[k]);
+                max[k] = Math.max(max[k], position[k]);
+            }
+        }
+
+        Node node = new Node();
+        if (parts == 1) {
+            Leaf leaf = new Leaf(leaves.size(), lo, hi, min, max);
+            leaves.add(leaf);
+            node.leaf = leaf;
+            return node;
+        }
+
+        int dim = 0;
+        for (int k = 1; k < d; k++) {
+            if (max[k] - min[k] > max[dim] - min[dim]) {
+                dim = k;
+            }
+        }
+        int leftParts = parts / 2;
+        int mid = lo + (int) ((long) (hi - lo) * leftParts / parts);
+        select(order, lo, hi, mid, dim);
+        node.dim = dim;
+        node.split = pointsToCluster.get(order[mid]).position[dim];
+        node.left = build(order, lo, mid, leftParts, leaves);
+        node.right = build(order, mid, hi, parts - leftParts, leaves);
+        return node;
+    }
+
+    /**
+     * Collect the leaves whose bounding box is within eps of a position.
+     */
+    private void collectLeaves(Node node, double[] position, IntList out) {
+        while (node.leaf == null) {
+            // left points are at most split, right points at least split
+            boolean left = position[node.dim] - eps <= node.split;
+            boolean right = position[node.dim] + eps >= node.split;
+            if (left && right) {
+                collectLeaves(node.left, position, out);
+                node = node.right;
+            } else {
+                node = left ? node.left : node.right;
+            }
+        }
+
+        double distSq = 0.0;
+        for (int k = 0; k < position.length; k++) {
+            double gap = Math.max(0.0, Math.max(node.leaf.min[k] -
+                    position[k], position[k] - node.leaf.max[k]));
+            distSq += gap * gap;
+        }
+        if (distSq <= eps * eps) {
+            out.add(node.leaf.index);
+        }
+    }
+
+    /**
+     * Reorder order[lo, hi) so that order[k] holds the point of rank k
+     * along dimension dim, with smaller or equal points before it and
+     * larger or equal points after it.
+     */
+    private void select(int[] order, int lo, int hi, int k, int dim) {
+        hi--;
+        while (lo < hi) {
+            double pivot = coord(order[(lo + hi) >>> 1], dim);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coord(order[i], dim) < pivot) {
+                    i++;
+                }
+                while (coord(order[j], dim) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double coord(int i, int dim) {
+        return pointsToCluster.get(i).position[dim];
+    }
+
+    /**
+     * Encode the points of a partition as a worker request.
+     */
+    private byte[] encodeRequest(IntList members) throws IOException {
+        int d = pointsToCluster.get(0).position.length;
+        PointStore store = new PointStore(d, Math.max(members.size(), 1));
+        for (int j = 0; j < members.size(); j++) {
+            Point p = pointsToCluster.get(members.get(j));
+            store.add(p.position, p.pointIndex, p.label);
+        }
+        return PartitionWorker.encodeRequest(eps, minPts, store);
+    }
+
+    private static Result decodeResult(byte[] bytes, int n, int r)
+            throws IOException {
+        if (bytes.length < 4 + 12L * n) {
+            throw new IOException("Malformed result of partition " + r);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                bytes));
+        if (in.readInt() != n) {
+            throw new IOException("Malformed result of partition " + r);
+        }
+        Result result = new Result(n);
+        int numLocal = 0;
+        for (int j = 0; j < n; j++) {
+            result.labels[j] = in.readInt();
+            numLocal = Math.max(numLocal, result.labels[j] + 1);
+        }
+        for (int j = 0; j < n; j++) {
+            result.epsNbrNum[j] = in.readInt();
+        }
+        for (int j = 0; j < n; j++) {
+            int numAdjacent = in.readInt();
+            if (numAdjacent < 0) {
+                throw new IOException("Malformed result of partition " + r);
+            }
+            result.adjacentStart[j + 1] = result.adjacentStart[j] +
+                    numAdjacent;
+        }
+        long numAdjacent = result.adjacentStart[n];
+        if (bytes.length != 4 + 12L * n + 4L * numAdjacent) {
+            throw new IOException("Malformed result of partition " + r);
+        }
+        result.adjacent = new int[(int) numAdjacent];
+        for (int a = 0; a < numAdjacent; a++) {
+            result.adjacent[a] = in.readInt();
+            if (result.adjacent[a] < 0 || result.adjacent[a] >= numLocal) {
+                throw new IOException("Malformed result of partition " + r);
+            }
+        }
+        return result;
+    }
+
+    private static byte[] await(Future<byte[]> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a worker",
+                    e);
+        } catch (ExecutionException e) {
+            throw new IOException("Worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Node of the KD partition tree, a leaf or a cut.
+     */
+    private static final class Node {
+
+        Leaf leaf;  // partition of a leaf, or null
+
+        int dim;  // cut dimension
+
+        double split;  // cut value
+
+        Node left;
+
+        Node right;
+    }
+
+    /**
+     * Decoded answer of a worker, by position in the partition members.
+     */
+    private static final class Result {
+
+        final int[] labels;  // local cluster indices
+
+        final int[] epsNbrNum;  // local neighbor counts
+
+        final int[] adjacentStart;  // adjacent[start[j], start[j + 1])
+
+        int[] adjacent;  // local clusters with a core point within eps
+
+        Result(int n) {
+            this.labels = new int[n];
+            this.epsNbrNum = new int[n];
+            this.adjacentStart = new int[n + 1];
+        }
+    }
+
+    /**
+     * One partition.
+     */
+    private static final class Leaf {
+
+        final int index;  // partition number
+
+        final int lo;  // owned points are order[lo, hi)
+
+        final int hi;
+
+        final double[] min;  // bounding box of the owned points
+
+        final double[] max;
+
+        Leaf(int index, int lo, int hi, double[] min, double[] max) {
+            this.index = index;
+            this.lo = lo;
+            this.hi = hi;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
@@ -12,6 +12,14 @@ public class Point {
 
     boolean visited;
 
+    int updateStamp;  // last update that took this point as a seed
+
+    int seedSlot;  // position in the seed list of that update
+
+    Point prevMember;  // neighbors in the member list of the cluster
+
+    Point nextMember;
+
     final static int NOISE = -1;
 
     public Point(final double[] position, int pointIndex, int label) {
@@ -29,21 +37,18 @@ public class Point {
     }
 
     public double euclidDist(Point p1) {
-        double sumDistSq = 0.0;
-        int d = position.length;
-        for (int i = 0; i < d; i++) {
-            sumDistSq += (position[i] - p1.position[i]) * (position[i] - p1.position[i]);
-        }
-        return Math.sqrt(sumDistSq);
+        return Math.sqrt(DistanceKernels.distSq(position, 0, p1.position, 0,
+                position.length));
     }
 
     public String toString() {
-        String info = "Position: ";
+        StringBuilder info = new StringBuilder("Position: ");
         for (int i = 0; i < position.length; i++) {
-            info += position[i] + ", ";
+            info.append(position[i]).append(", ");
         }
-        info += "Index: " + pointIndex + ", Label: " + label + ", Visited: " +
-                    visited + ", ClusterIndex: " + clusterIndex;
-        return info;
+        info.append("Index: ").append(pointIndex).append(", Label: ")
+                .append(label).append(", Visited: ").append(visited)
+                .append(", ClusterIndex: ").append(clusterIndex);
+        return info.toString();
     }
 }
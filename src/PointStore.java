@@ -0,0 +1,197 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar (structure-of-arrays) point store. Coordinates of all points are
+ * kept in one contiguous array and per-point state in parallel int arrays,
+ * so points are addressed by their id (insertion order) instead of being
+ * separate objects.
+ */
+public class PointStore {
+
+    private static final int MAX_COORDS = Integer.MAX_VALUE - 8;  // largest
+    // array the VM allocates
+
+    private final int d;  // dimension
+
+    private int size;  // number of stored points
+
+    double[] coords;  // coordinates of point i in [i * d, (i + 1) * d),
+    // capacity * d never exceeds MAX_COORDS, so the int offsets of stored
+    // points cannot overflow
+
+    int[] pointIndex;  // point index of the input
+
+    int[] label;  // true cluster label
+
+    int[] clusterIndex;  // cluster index, or Point.NOISE
+
+    int[] epsNbrNum;  // number of eps-neighbors
+
+    public PointStore(final int d) {
+        this(d, 16);
+    }
+
+    public PointStore(final int d, final int capacity) {
+        if (d < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Dimension and capacity must " +
+                    "be positive");
+        }
+
+        if ((long) capacity * d > MAX_COORDS) {
+            throw new IllegalArgumentException("Capacity " + capacity +
+                    " of dimension " + d + " needs more than " + MAX_COORDS +
+                    " coordinates");
+        }
+
+        this.d = d;
+        this.size = 0;
+        this.coords = new double[capacity * d];
+        this.pointIndex = new int[capacity];
+        this.label = new int[capacity];
+        this.clusterIndex = new int[capacity];
+        this.epsNbrNum = new int[capacity];
+    }
+
+    /**
+     * Copy a list of points into a new store.
+     *
+     * @param points points of equal dimension
+     * @return
+     */
+    public static PointStore of(final List<Point> points) {
+        if (points.isEmpty()) {
+            throw new IllegalArgumentException("Cannot infer dimension of " +
+                    "an empty point list");
+        }
+
+        PointStore store = new PointStore(points.get(0).position.length,
+                points.size());
+        for (Point p : points) {
+            store.add(p.position, p.pointIndex, p.label);
+        }
+        return store;
+    }
+
+    /**
+     * Append a noise point.
+     *
+     * @param position   coordinates
+     * @param pointIndex point index
+     * @param label      true cluster label
+     * @return id of the new point
+     */
+    public int add(final double[] position, int pointIndex, int label) {
+        if (position.length != d) {
+            throw new IllegalArgumentException("Expected dimension " + d +
+                    " but got " + position.length);
+        }
+        if (size == this.pointIndex.length) {
+            grow();
+        }
+
+        int id = size++;
+        System.arraycopy(position, 0, coords, id * d, d);
+        this.pointIndex[id] = pointIndex;
+        this.label[id] = label;
+        this.clusterIndex[id] = Point.NOISE;
+        this.epsNbrNum[id] = 1;
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return d;
+    }
+
+    public double getCoord(int id, int k) {
+        return coords[id * d + k];
+    }
+
+    public int getClusterIndex(int id) {
+        return clusterIndex[id];
+    }
+
+    /**
+     * Squared euclidean distance between two stored points.
+     *
+     * @param i
+     * @param j
+     * @return
+     */
+    public double distSq(int i, int j) {
+        return DistanceKernels.distSq(coords, i * d, coords, j * d, d);
+    }
+
+    /**
+     * Materialize a stored point as a {@link Point}.
+     *
+     * @param id
+     * @return
+     */
+    public Point toPoint(int id) {
+        Point p = new Point(Arrays.copyOfRange(coords, id * d, (id + 1) * d),
+                pointIndex[id], label[id]);
+        p.clusterIndex = clusterIndex[id];
+        p.epsNbrNum = epsNbrNum[id];
+        return p;
+    }
+
+    /**
+     * Permute the stored points, e.g. into the order of a
+     * {@link SpaceFillingCurve}. Point {@code order[i]} gets id {@code i};
+     * the pointIndex column moves with the points, so the input index of
+     * every point is kept.
+     *
+     * @param order every id once
+     */
+    public void reorder(int[] order) {
+        if (order.length != size) {
+            throw new IllegalArgumentException("Order must hold " + size +
+                    " ids but holds " + order.length);
+        }
+
+        double[] newCoords = new double[coords.length];
+        int[] newPointIndex = new int[pointIndex.length];
+        int[] newLabel = new int[label.length];
+        int[] newClusterIndex = new int[clusterIndex.length];
+        int[] newEpsNbrNum = new int[epsNbrNum.length];
+        boolean[] seen = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int id = order[i];
+            if (id < 0 || id >= size || seen[id]) {
+                throw new IllegalArgumentException("Order is not a " +
+                        "permutation of the ids");
+            }
+            seen[id] = true;
+            System.arraycopy(coords, id * d, newCoords, i * d, d);
+            newPointIndex[i] = pointIndex[id];
+            newLabel[i] = label[id];
+            newClusterIndex[i] = clusterIndex[id];
+            newEpsNbrNum[i] = epsNbrNum[id];
+        }
+        coords = newCoords;
+        pointIndex = newPointIndex;
+        label = newLabel;
+        clusterIndex = newClusterIndex;
+        epsNbrNum = newEpsNbrNum;
+    }
+
+    private void grow() {
+        int maxCapacity = MAX_COORDS / d;
+        if (pointIndex.length >= maxCapacity) {
+            throw new IllegalStateException("Store of dimension " + d +
+                    " is full at " + pointIndex.length + " points");
+        }
+        int capacity = (int) Math.min(maxCapacity,
+                pointIndex.length + (pointIndex.length >> 1) + 1L);
+        coords = Arrays.copyOf(coords, capacity * d);
+        pointIndex = Arrays.copyOf(pointIndex, capacity);
+        label = Arrays.copyOf(label, capacity);
+        clusterIndex = Arrays.copyOf(clusterIndex, capacity);
+        epsNbrNum = Arrays.copyOf(epsNbrNum, capacity);
+    }
+}
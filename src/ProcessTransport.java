@@ -0,0 +1,115 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport to worker JVMs started on this machine. Each worker runs
+ * {@link PartitionWorker} with the class path of this JVM, and exchanges
+ * length-prefixed messages over its standard input and output.
+ */
+public class ProcessTransport implements PartitionTransport {
+
+    private final Process[] processes;
+
+    private final DataOutputStream[] requests;  // worker standard input
+
+    private final DataInputStream[] responses;  // worker standard output
+
+    private final ExecutorService[] channels;  // one exchange at a time
+
+    public ProcessTransport(final int numWorkers) throws IOException {
+        this(numWorkers, new ArrayList<>());
+    }
+
+    /**
+     * Start the workers.
+     *
+     * @param numWorkers number of worker processes
+     * @param jvmOptions options of the worker JVMs, e.g. "-Xmx4g"
+     * @throws IOException if a worker cannot be started
+     */
+    public ProcessTransport(final int numWorkers,
+                            final List<String> jvmOptions)
+            throws IOException {
+        if (numWorkers < 1) {
+            throw new IllegalArgumentException("Number of workers must be " +
+                    "positive");
+        }
+
+        String java = System.getProperty("java.home") + File.separator +
+                "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PartitionWorker.class.getName());
+
+        this.processes = new Process[numWorkers];
+        this.requests = new DataOutputStream[numWorkers];
+        this.responses = new DataInputStream[numWorkers];
+        this.channels = new ExecutorService[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            processes[i] = new ProcessBuilder(command)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+            requests[i] = new DataOutputStream(new BufferedOutputStream(
+                    processes[i].getOutputStream(), 1 << 16));
+            responses[i] = new DataInputStream(new BufferedInputStream(
+                    processes[i].getInputStream(), 1 << 16));
+            channels[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "partition-channel");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public int getNumWorkers() {
+        return processes.length;
+    }
+
+    @Override
+    public Future<byte[]> send(int worker, byte[] request) {
+        return channels[worker].submit(() -> {
+            requests[worker].writeInt(request.length);
+            requests[worker].write(request);
+            requests[worker].flush();
+            byte[] response = new byte[responses[worker].readInt()];
+            responses[worker].readFully(response);
+            return response;
+        });
+    }
+
+    /**
+     * Close the input of every worker, which makes it exit, and wait for
+     * the workers.
+     */
+    @Override
+    public void close() throws IOException {
+        for (ExecutorService channel : channels) {
+            channel.shutdown();
+        }
+        for (int i = 0; i < processes.length; i++) {
+            try {
+                channels[i].awaitTermination(1, TimeUnit.MINUTES);
+                requests[i].close();
+                if (!processes[i].waitFor(1, TimeUnit.MINUTES)) {
+                    processes[i].destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                processes[i].destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,480 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * R-tree index (Guttman, SIGMOD' 84) with quadratic node split and
+ * reinsertion of underfull nodes on removal.
+ * Bounding boxes are compared by margin (sum of side lengths) instead of
+ * volume, so degenerate boxes of points and high dimensions still give a
+ * useful split.
+ */
+public class RTreeIndex implements NeighborIndex {
+
+    private final int maxEntries;  // node capacity
+
+    private final int minEntries;  // minimum fill of a split node
+
+    // per-thread traversal stack reused by queries
+    private static final ThreadLocal<ArrayDeque<Node>> STACK =
+            ThreadLocal.withInitial(ArrayDeque::new);
+
+    private Node root;
+
+    private int size;  // number of indexed points
+
+    private final DistanceMetric metric;
+
+    public RTreeIndex() {
+        this(16);
+    }
+
+    public RTreeIndex(final int maxEntries) {
+        this(maxEntries, StandardMetric.EUCLIDEAN);
+    }
+
+    public RTreeIndex(final int maxEntries, final DistanceMetric metric) {
+        if (maxEntries < 4) {
+            throw new IllegalArgumentException("R-tree node capacity must " +
+                    "be at least 4");
+        }
+
+        this.maxEntries = maxEntries;
+        this.minEntries = maxEntries * 2 / 5;
+        this.metric = metric;
+        clear();
+    }
+
+    @Override
+    public void insert(Point point) {
+        size++;
+
+        // choose leaf, enlarging boxes on the way down
+        Node node = root;
+        node.include(point.position, point.position);
+        while (!node.leaf) {
+            Node best = null;
+            double bestEnlargement = Double.POSITIVE_INFINITY;
+            double bestMargin = Double.POSITIVE_INFINITY;
+            for (Node child : node.children) {
+                double margin = child.margin();
+                double enlargement = child.marginWith(point.position,
+                        point.position) - margin;
+                if (enlargement < bestEnlargement ||
+                        (enlargement == bestEnlargement &&
+                                margin < bestMargin)) {
+                    best = child;
+                    bestEnlargement = enlargement;
+                    bestMargin = margin;
+                }
+            }
+            best.include(point.position, point.position);
+            node = best;
+        }
+        node.points.add(point);
+
+        // split overflowing nodes bottom-up
+        while (node.numEntries() > maxEntries) {
+            Node sibling = split(node);
+            if (node == root) {
+                root = new Node(false);
+                root.addChild(node);
+                root.addChild(sibling);
+                break;
+            }
+            node.parent.addChild(sibling);
+            node = node.parent;
+        }
+    }
+
+    @Override
+    public boolean remove(Point point) {
+        Node leaf = findLeaf(point);
+        if (leaf == null) {
+            return false;
+        }
+        leaf.points.remove(point);
+        size--;
+
+        // condense tree, underfull nodes are dissolved and their points
+        // inserted again
+        List<Point> orphans = new ArrayList<>();
+        Node node = leaf;
+        while (node != root) {
+            Node parent = node.parent;
+            if (node.numEntries() < minEntries) {
+                parent.children.remove(node);
+                collectPoints(node, orphans);
+            } else {
+                node.recomputeBox();
+            }
+            node = parent;
+        }
+        root.recomputeBox();
+
+        // shorten tree
+        while (!root.leaf && root.children.size() == 1) {
+            root = root.children.get(0);
+            root.parent = null;
+        }
+        if (!root.leaf && root.children.isEmpty()) {
+            root = new Node(true);
+        }
+
+        size -= orphans.size();
+        for (Point p : orphans) {
+            insert(p);
+        }
+        return true;
+    }
+
+    @Override
+    public int forEachNeighbor(Point point, double eps,
+                               NeighborVisitor visitor) {
+        if (size == 0) {
+            return 0;
+        }
+
+        double radius = metric.boxRadius(eps);
+        int numNeighbors = 0;
+        ArrayDeque<Node> stack = STACK.get();
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!node.intersects(point.position, radius)) {
+                continue;
+            }
+            if (node.leaf) {
+                for (int i = 0; i < node.points.size(); i++) {
+                    final Point p = node.points.get(i);
+                    // include point itself
+                    if (metric.withinEps(point.position, p.position, eps)) {
+                        visitor.visit(p);
+                        numNeighbors++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < node.children.size(); i++) {
+                    stack.push(node.children.get(i));
+                }
+            }
+        }
+        return numNeighbors;
+    }
+
+    @Override
+    public DistanceMetric getMetric() {
+        return metric;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        root = new Node(true);
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Point> iterator() {
+        List<Point> all = new ArrayList<>(size);
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.leaf) {
+                all.addAll(node.points);
+            } else {
+                for (Node child : node.children) {
+                    stack.push(child);
+                }
+            }
+        }
+        return all.iterator();
+    }
+
+    /**
+     * Find the leaf holding {@code point}.
+     *
+     * @param point
+     * @return leaf, or null if the point is not indexed
+     */
+    private Node findLeaf(Point point) {
+        if (size == 0) {
+            return null;
+        }
+
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!node.intersects(point.position, 0.0)) {
+                continue;
+            }
+            if (node.leaf) {
+                for (Point p : node.points) {
+                    if (p == point) {
+                        return node;
+                    }
+                }
+            } else {
+                for (Node child : node.children) {
+                    stack.push(child);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void collectPoints(Node node, List<Point> out) {
+        if (node.leaf) {
+            out.addAll(node.points);
+        } else {
+            for (Node child : node.children) {
+                collectPoints(child, out);
+            }
+        }
+    }
+
+    /**
+     * Quadratic split. Entries of {@code node} are distributed over
+     * {@code node} itself and a new sibling, which is returned.
+     *
+     * @param node overflowing node
+     * @return new sibling node
+     */
+    private Node split(Node node) {
+        int n = node.numEntries();
+        double[][] mins = new double[n][];
+        double[][] maxs = new double[n][];
+        for (int i = 0; i < n; i++) {
+            if (node.leaf) {
+                mins[i] = node.points.get(i).position;
+                maxs[i] = mins[i];
+            } else {
+                mins[i] = node.children.get(i).min;
+                maxs[i] = node.children.get(i).max;
+            }
+        }
+
+        // pick the two seeds wasting the most margin when grouped together
+        int seed1 = 0, seed2 = 1;
+        double worstWaste = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double waste = unionMargin(mins[i], maxs[i], mins[j],
+                        maxs[j]) - margin(mins[i], maxs[i]) -
+                        margin(mins[j], maxs[j]);
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seed1 = i;
+                    seed2 = j;
+                }
+            }
+        }
+
+        // group[i] is 1 or 2 once entry i is assigned
+        int[] group = new int[n];
+        group[seed1] = 1;
+        group[seed2] = 2;
+        int size1 = 1, size2 = 1;
+        double[] min1 = mins[seed1].clone(), max1 = maxs[seed1].clone();
+        double[] min2 = mins[seed2].clone(), max2 = maxs[seed2].clone();
+        int remaining = n - 2;
+        while (remaining > 0) {
+            // one group must take all the rest to reach the minimum fill
+            if (size1 + remaining == minEntries ||
+                    size2 + remaining == minEntries) {
+                int target = size1 + remaining == minEntries ? 1 : 2;
+                for (int i = 0; i < n; i++) {
+                    if (group[i] == 0) {
+                        group[i] = target;
+                        if (target == 1) {
+                            expand(min1, max1, mins[i], maxs[i]);
+                        } else {
+                            expand(min2, max2, mins[i], maxs[i]);
+                        }
+                    }
+                }
+                break;
+            }
+
+            // pick the entry with the strongest preference for one group
+            int next = -1;
+            double maxDiff = Double.NEGATIVE_INFINITY;
+            double nextEnl1 = 0.0, nextEnl2 = 0.0;
+            for (int i = 0; i < n; i++) {
+                if (group[i] != 0) {
+                    continue;
+                }
+                double enl1 = unionMargin(min1, max1, mins[i], maxs[i]) -
+                        margin(min1, max1);
+                double enl2 = unionMargin(min2, max2, mins[i], maxs[i]) -
+                        margin(min2, max2);
+                double diff = Math.abs(enl1 - enl2);
+                if (diff > maxDiff) {
+                    maxDiff = diff;
+                    next = i;
+                    nextEnl1 = enl1;
+                    nextEnl2 = enl2;
+                }
+            }
+
+            boolean toFirst;
+            if (nextEnl1 != nextEnl2) {
+                toFirst = nextEnl1 < nextEnl2;
+            } else if (margin(min1, max1) != margin(min2, max2)) {
+                toFirst = margin(min1, max1) < margin(min2, max2);
+            } else {
+                toFirst = size1 <= size2;
+            }
+            if (toFirst) {
+                group[next] = 1;
+                size1++;
+                expand(min1, max1, mins[next], maxs[next]);
+            } else {
+                group[next] = 2;
+                size2++;
+                expand(min2, max2, mins[next], maxs[next]);
+            }
+            remaining--;
+        }
+
+        // move the second group to the sibling
+        Node sibling = new Node(node.leaf);
+        if (node.leaf) {
+            List<Point> kept = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (group[i] == 1) {
+                    kept.add(node.points.get(i));
+                } else {
+                    sibling.points.add(node.points.get(i));
+                }
+            }
+            node.points = kept;
+        } else {
+            List<Node> kept = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (group[i] == 1) {
+                    kept.add(node.children.get(i));
+                } else {
+                    sibling.addChild(node.children.get(i));
+                }
+            }
+            node.children = kept;
+        }
+        node.min = min1;
+        node.max = max1;
+        sibling.min = min2;
+        sibling.max = max2;
+        return sibling;
+    }
+
+    private static double margin(double[] min, double[] max) {
+        double margin = 0.0;
+        for (int i = 0; i < min.length; i++) {
+            margin += max[i] - min[i];
+        }
+        return margin;
+    }
+
+    private static double unionMargin(double[] min1, double[] max1,
+                                      double[] min2, double[] max2) {
+        double margin = 0.0;
+        for (int i = 0; i < min1.length; i++) {
+            margin += Math.max(max1[i], max2[i]) - Math.min(min1[i], min2[i]);
+        }
+        return margin;
+    }
+
+    private static void expand(double[] min, double[] max, double[] otherMin,
+                               double[] otherMax) {
+        for (int i = 0; i < min.length; i++) {
+            min[i] = Math.min(min[i], otherMin[i]);
+            max[i] = Math.max(max[i], otherMax[i]);
+        }
+    }
+
+    /**
+     * Tree node. A leaf holds points, an inner node holds child nodes.
+     */
+    private static final class Node {
+
+        final boolean leaf;
+
+        double[] min;  // lower corner of the bounding box
+
+        double[] max;  // upper corner of the bounding box
+
+        List<Point> points;  // entries of a leaf
+
+        List<Node> children;  // entries of an inner node
+
+        Node parent;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            if (leaf) {
+                points = new ArrayList<>();
+            } else {
+                children = new ArrayList<>();
+            }
+        }
+
+        int numEntries() {
+            return leaf ? points.size() : children.size();
+        }
+
+        void addChild(Node child) {
+            child.parent = this;
+            children.add(child);
+            include(child.min, child.max);
+        }
+
+        void include(double[] otherMin, double[] otherMax) {
+            if (min == null) {
+                min = otherMin.clone();
+                max = otherMax.clone();
+            } else {
+                expand(min, max, otherMin, otherMax);
+            }
+        }
+
+        void recomputeBox() {
+            min = null;
+            max = null;
+            if (leaf) {
+                for (Point p : points) {
+                    include(p.position, p.position);
+                }
+            } else {
+                for (Node child : children) {
+                    include(child.min, child.max);
+                }
+            }
+        }
+
+        double margin() {
+            return RTreeIndex.margin(min, max);
+        }
+
+        double marginWith(double[] otherMin, double[] otherMax) {
+            return unionMargin(min, max, otherMin, otherMax);
+        }
+
+        boolean intersects(double[] center, double eps) {
+            for (int i = 0; i < center.length; i++) {
+                if (center[i] + eps < min[i] || center[i] - eps > max[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
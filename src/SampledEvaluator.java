@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Estimate of a metric with its confidence interval.
+ */
+class MetricEstimate {
+    public double value, lower, upper;
+
+    @Override
+    public String toString() {
+        return value + " [" + lower + ", " + upper + "]";
+    }
+}
+
+class SampledMetrics {
+    public MetricEstimate randStat, jaccard, fowlkesMallow, f1Score, NMI;
+
+    @Override
+    public String toString() {
+        return "rand: " + randStat + "\njaccard: " + jaccard +
+                "\nfowlkes-mallow: " + fowlkesMallow + "\nf1: " + f1Score +
+                "\nnmi: " + NMI;
+    }
+}
+
+/**
+ * Clustering quality estimated from a uniform sample of the points, for
+ * point sets too large to evaluate exactly. The points are streamed once
+ * through a reservoir (Li's algorithm L, which skips ahead instead of
+ * drawing a random number per point) holding the cluster index and class
+ * label of at most {@code sampleSize} points. Metrics are computed on the
+ * sample, with percentile bootstrap confidence intervals.
+ * F1 and NMI computed on a sample are biased, the bias shrinks with the
+ * sample size.
+ */
+public class SampledEvaluator {
+
+    private final int sampleSize;  // reservoir capacity
+
+    private final Random random;
+
+    private final int[] clusterIndex;  // sampled cluster indices
+
+    private final int[] label;  // sampled class labels
+
+    private long numSeen;  // points offered so far
+
+    private long nextSample;  // position of the next point to sample
+
+    private double w;  // algorithm L skip parameter
+
+    public SampledEvaluator(final int sampleSize, final long seed) {
+        if (sampleSize < 2) {
+            throw new IllegalArgumentException("Sample size must be at " +
+                    "least 2");
+        }
+
+        this.sampleSize = sampleSize;
+        this.random = new Random(seed);
+        this.clusterIndex = new int[sampleSize];
+        this.label = new int[sampleSize];
+        this.numSeen = 0;
+        this.nextSample = sampleSize - 1;
+        this.w = Math.exp(Math.log(nextRandom()) / sampleSize);
+        skip();
+    }
+
+    /**
+     * Offer a clustered point to the sample. Its cluster index is taken as
+     * it is: the points of an {@link IncDBSCANCluster} may still carry the
+     * id of a merged cluster, call
+     * {@link IncDBSCANCluster#compactClusterMapping()} first, or offer
+     * {@link IncDBSCANCluster#getClusterId(Point)} with the label.
+     *
+     * @param p
+     */
+    public void offer(Point p) {
+        offer(p.clusterIndex, p.label);
+    }
+
+    /**
+     * Offer a point, given its cluster index and class label, to the
+     * sample.
+     *
+     * @param clusterIndex
+     * @param label
+     */
+    public void offer(int clusterIndex, int label) {
+        if (numSeen < sampleSize) {
+            this.clusterIndex[(int) numSeen] = clusterIndex;
+            this.label[(int) numSeen] = label;
+        } else if (numSeen == nextSample) {
+            int slot = random.nextInt(sampleSize);
+            this.clusterIndex[slot] = clusterIndex;
+            this.label[slot] = label;
+            w *= Math.exp(Math.log(nextRandom()) / sampleSize);
+            skip();
+        }
+        numSeen++;
+    }
+
+    /**
+     * Offer all points, with their cluster indices taken as they are, see
+     * {@link #offer(Point)}.
+     *
+     * @param points
+     */
+    public void offerAll(Iterable<Point> points) {
+        for (Point p : points) {
+            offer(p.clusterIndex, p.label);
+        }
+    }
+
+    public long getNumSeen() {
+        return numSeen;
+    }
+
+    /**
+     * Get the number of points in the sample.
+     *
+     * @return
+     */
+    public int getNumSampled() {
+        return (int) Math.min(numSeen, sampleSize);
+    }
+
+    /**
+     * Estimate the metrics from the sample.
+     *
+     * @param numResamples number of bootstrap resamples, 0 for point
+     *                     estimates only
+     * @param confidence   confidence level of the intervals, e.g. 0.95
+     * @return
+     */
+    public SampledMetrics evaluate(int numResamples, double confidence) {
+        int n = getNumSampled();
+        if (n < 2) {
+            throw new IllegalStateException("Need at least 2 sampled points");
+        }
+        if (numResamples < 0 || confidence <= 0.0 || confidence >= 1.0) {
+            throw new IllegalArgumentException("Invalid number of resamples " +
+                    "or confidence level");
+        }
+
+        double[][] values = new double[5][numResamples];
+        Random resampler = new Random(random.nextLong());
+        for (int b = 0; b < numResamples; b++) {
+            IncrementalEvaluator resample = new IncrementalEvaluator();
+            for (int i = 0; i < n; i++) {
+                int j = resampler.nextInt(n);
+                resample.add(clusterIndex[j], label[j]);
+            }
+            record(resample, values, b);
+        }
+
+        IncrementalEvaluator sample = new IncrementalEvaluator();
+        for (int i = 0; i < n; i++) {
+            sample.add(clusterIndex[i], label[i]);
+        }
+        double[][] point = new double[5][1];
+        record(sample, point, 0);
+
+        SampledMetrics metrics = new SampledMetrics();
+        metrics.randStat = estimate(point[0][0], values[0], confidence);
+        metrics.jaccard = estimate(point[1][0], values[1], confidence);
+        metrics.fowlkesMallow = estimate(point[2][0], values[2], confidence);
+        metrics.f1Score = estimate(point[3][0], values[3], confidence);
+        metrics.NMI = estimate(point[4][0], values[4], confidence);
+        return metrics;
+    }
+
+    private static void record(IncrementalEvaluator evaluator,
+                               double[][] values, int b) {
+        PairwiseMetrics pairwise = evaluator.pairwiseMetrics();
+        values[0][b] = pairwise.randStat;
+        values[1][b] = pairwise.jaccard;
+        values[2][b] = pairwise.fowlkesMallow;
+        values[3][b] = evaluator.f1Score().f1Score;
+        values[4][b] = evaluator.NMI();
+    }
+
+    /**
+     * Percentile interval of the bootstrap values around a point estimate.
+     */
+    private static MetricEstimate estimate(double value, double[] resampled,
+                                           double confidence) {
+        MetricEstimate estimate = new MetricEstimate();
+        estimate.value = value;
+        if (resampled.length == 0) {
+            estimate.lower = value;
+            estimate.upper = value;
+            return estimate;
+        }
+        double[] sorted = resampled.clone();
+        Arrays.sort(sorted);
+        double tail = (1.0 - confidence) / 2.0;
+        int lower = (int) Math.floor(tail * (sorted.length - 1));
+        int upper = (int) Math.ceil((1.0 - tail) * (sorted.length - 1));
+        estimate.lower = sorted[lower];
+        estimate.upper = sorted[upper];
+        return estimate;
+    }
+
+    /**
+     * Set the position of the next point replacing a sampled one.
+     */
+    private void skip() {
+        nextSample += (long) Math.floor(Math.log(nextRandom()) /
+                Math.log(1.0 - w)) + 1;
+    }
+
+    /**
+     * Uniform random number in (0, 1), log of it is finite.
+     */
+    private double nextRandom() {
+        double u;
+        do {
+            u = random.nextDouble();
+        } while (u == 0.0);
+        return u;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.ArrayDeque;
+
+/**
+ * Streaming DBSCAN over a sliding window, on top of the incremental
+ * clusterer. The window is bounded by the number of points, by their age,
+ * or both, and points falling out of it are deleted as new ones arrive.
+ * The clusters are renumbered from time to time, see
+ * {@link IncDBSCANCluster#compactClusterMapping()}.
+ */
+public class SlidingWindowDBSCANCluster {
+
+    private final IncDBSCANCluster cluster;  // clustering of the window
+
+    private final int maxPoints;  // maximum number of points in the window
+
+    private final long maxAge;  // maximum age of a point in the window
+
+    private final ArrayDeque<Point> window;  // points in arrival order
+
+    private final ArrayDeque<Long> timestamps;  // arrival time of each point
+
+    private long currentTime;  // timestamp of the latest point
+
+    private int numEvictedSinceCompact;  // points evicted since the last
+    // cluster mapping compaction
+
+    /**
+     * @param cluster   empty incremental clusterer
+     * @param maxPoints window size in points, Integer.MAX_VALUE for no limit
+     * @param maxAge    window length in time units, Long.MAX_VALUE for no
+     *                  limit
+     */
+    public SlidingWindowDBSCANCluster(final IncDBSCANCluster cluster,
+                                      final int maxPoints,
+                                      final long maxAge) {
+        if (maxPoints < 1 || maxAge < 1) {
+            throw new IllegalArgumentException("Window size must be " +
+                    "positive");
+        }
+
+        this.cluster = cluster;
+        this.maxPoints = maxPoints;
+        this.maxAge = maxAge;
+        this.window = new ArrayDeque<>();
+        this.timestamps = new ArrayDeque<>();
+        currentTime = Long.MIN_VALUE;
+        numEvictedSinceCompact = 0;
+    }
+
+    /**
+     * Insert a point arriving at the current time, the latest timestamp
+     * given. Before the first timestamp the point is stamped
+     * Long.MIN_VALUE, earlier than any timestamp, so it is the first to
+     * leave the window by age.
+     *
+     * @param newPoint
+     */
+    public void update(Point newPoint) {
+        update(newPoint, currentTime);
+    }
+
+    /**
+     * Insert a point arriving at {@code timestamp}, evicting the points that
+     * leave the window first.
+     *
+     * @param newPoint
+     * @param timestamp arrival time, not earlier than the previous one
+     */
+    public void update(Point newPoint, long timestamp) {
+        advanceTime(timestamp);
+        while (window.size() >= maxPoints) {
+            evictOldest();
+        }
+
+        cluster.incrementalUpdate(newPoint);
+        window.addLast(newPoint);
+        timestamps.addLast(timestamp);
+    }
+
+    /**
+     * Move the window forward in time without inserting a point.
+     *
+     * @param timestamp current time, not earlier than the previous one
+     */
+    public void advanceTime(long timestamp) {
+        if (timestamp < currentTime) {
+            throw new IllegalArgumentException("Timestamp " + timestamp +
+                    " is earlier than " + currentTime);
+        }
+        currentTime = timestamp;
+
+        // timestamps never decrease, so the age is exact as an unsigned
+        // difference even beyond Long.MAX_VALUE, e.g. from a Long.MIN_VALUE
+        // stamp; without an age limit nothing leaves by age
+        while (maxAge != Long.MAX_VALUE && !window.isEmpty() &&
+                Long.compareUnsigned(currentTime - timestamps.peekFirst(),
+                        maxAge) >= 0) {
+            evictOldest();
+        }
+    }
+
+    /**
+     * Get the clustering of the points in the window.
+     *
+     * @return
+     */
+    public IncDBSCANCluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Get the number of points in the window.
+     *
+     * @return
+     */
+    public int size() {
+        return window.size();
+    }
+
+    /**
+     * Delete the oldest point of the window.
+     */
+    private void evictOldest() {
+        cluster.incrementalDelete(window.pollFirst());
+        timestamps.pollFirst();
+
+        // ids of merged and vanished clusters pile up in the cluster
+        // mapping, renumber the live clusters once per window length of
+        // evictions so that memory stays bounded by the window
+        numEvictedSinceCompact++;
+        if (numEvictedSinceCompact >= window.size()) {
+            cluster.compactClusterMapping();
+            numEvictedSinceCompact = 0;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Space-filling curves ordering points so that points close in space are
+ * mostly close in the order. Storing points in curve order makes range
+ * queries and cluster expansion read mostly contiguous memory.
+ * <p>
+ * Coordinates are quantized on the bounding box of the points, with
+ * {@code 31 / d} bits per dimension, so a key and a point id fit in one
+ * long; beyond 31 dimensions only the first 31 are used. The order only
+ * needs locality, ties between points of one quantization cell are kept
+ * in input order.
+ */
+public enum SpaceFillingCurve {
+
+    /**
+     * Z-order, interleaving the bits of the coordinates.
+     */
+    MORTON {
+        @Override
+        long key(int[] cell, int bits) {
+            return interleave(cell, bits);
+        }
+    },
+
+    /**
+     * Hilbert order, by Skilling's transpose (AIP Conf. Proc. 707, 2004).
+     * Consecutive cells are always adjacent, unlike the jumps of Z-order.
+     */
+    HILBERT {
+        @Override
+        long key(int[] cell, int bits) {
+            int n = cell.length;
+            int m = 1 << (bits - 1);
+            // inverse undo
+            for (int q = m; q > 1; q >>= 1) {
+                int p = q - 1;
+                for (int i = 0; i < n; i++) {
+                    if ((cell[i] & q) != 0) {
+                        cell[0] ^= p;
+                    } else {
+                        int t = (cell[0] ^ cell[i]) & p;
+                        cell[0] ^= t;
+                        cell[i] ^= t;
+                    }
+                }
+            }
+            // gray encode
+            for (int i = 1; i < n; i++) {
+                cell[i] ^= cell[i - 1];
+            }
+            int t = 0;
+            for (int q = m; q > 1; q >>= 1) {
+                if ((cell[n - 1] & q) != 0) {
+                    t ^= q - 1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                cell[i] ^= t;
+            }
+            return interleave(cell, bits);
+        }
+    };
+
+    private static final int KEY_BITS = 31;  // the id takes the low 32 bits
+
+    /**
+     * Key of a quantized cell. The cell may be overwritten.
+     *
+     * @param cell coordinates, each below 2^bits
+     * @param bits bits per coordinate
+     * @return
+     */
+    abstract long key(int[] cell, int bits);
+
+    /**
+     * Order points along the curve.
+     *
+     * @param points points of equal dimension
+     * @return positions in the list, in curve order
+     */
+    public int[] order(List<Point> points) {
+        int n = points.size();
+        if (n == 0) {
+            return new int[0];
+        }
+        int d = points.get(0).position.length;
+        return order((i, k) -> points.get(i).position[k], n, d);
+    }
+
+    /**
+     * Order the points of a store along the curve.
+     *
+     * @param store
+     * @return ids in curve order
+     */
+    public int[] order(PointStore store) {
+        return order(store::getCoord, store.size(), store.dimension());
+    }
+
+    /**
+     * Coordinate k of point i.
+     */
+    private interface Coords {
+        double get(int i, int k);
+    }
+
+    private int[] order(Coords coords, int n, int d) {
+        int dims = Math.min(d, KEY_BITS);
+        int bits = Math.max(1, KEY_BITS / dims);
+        double[] min = new double[dims];
+        double[] max = new double[dims];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < dims; k++) {
+                min[k] = Math.min(min[k], coords.get(i, k));
+                max[k] = Math.max(max[k], coords.get(i, k));
+            }
+        }
+        int maxCell = (1 << bits) - 1;
+        double[] scale = new double[dims];
+        for (int k = 0; k < dims; k++) {
+            double extent = max[k] - min[k];
+            scale[k] = extent > 0.0 ? maxCell / extent : 0.0;
+        }
+
+        // key in the high bits, id in the low bits
+        long[] keyed = new long[n];
+        int[] cell = new int[dims];
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < dims; k++) {
+                cell[k] = (int) Math.min(maxCell, (coords.get(i, k) -
+                        min[k]) * scale[k]);
+            }
+            keyed[i] = key(cell, bits) << 32 | i;
+        }
+        Arrays.sort(keyed);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) keyed[i];
+        }
+        return order;
+    }
+
+    /**
+     * Interleave the bits of the coordinates, most significant first.
+     */
+    private static long interleave(int[] cell, int bits) {
+        long key = 0L;
+        for (int b = bits - 1; b >= 0; b--) {
+            for (int c : cell) {
+                key = key << 1 | (c >>> b & 1);
+            }
+        }
+        return key;
+    }
+}
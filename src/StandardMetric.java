@@ -0,0 +1,121 @@
+/**
+ * Built-in distance metrics.
+ */
+public enum StandardMetric implements DistanceMetric {
+
+    EUCLIDEAN {
+        @Override
+        public double distance(double[] a, double[] b) {
+            return Math.sqrt(DistanceKernels.distSq(a, 0, b, 0, a.length));
+        }
+
+        @Override
+        public boolean withinEps(double[] a, int aOffset, double[] b,
+                                 int bOffset, int d, double eps) {
+            return DistanceKernels.withinDistSq(a, aOffset, b, bOffset, d,
+                    eps * eps);
+        }
+
+        @Override
+        public double boxRadius(double eps) {
+            return eps;
+        }
+    },
+
+    MANHATTAN {
+        @Override
+        public double distance(double[] a, double[] b) {
+            double sum = 0.0;
+            for (int i = 0; i < a.length; i++) {
+                sum += Math.abs(a[i] - b[i]);
+            }
+            return sum;
+        }
+
+        @Override
+        public boolean withinEps(double[] a, int aOffset, double[] b,
+                                 int bOffset, int d, double eps) {
+            double sum = 0.0;
+            for (int i = 0; i < d; i++) {
+                sum += Math.abs(a[aOffset + i] - b[bOffset + i]);
+                if (sum > eps) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double boxRadius(double eps) {
+            // no coordinate can differ by more than the sum
+            return eps;
+        }
+    },
+
+    CHEBYSHEV {
+        @Override
+        public double distance(double[] a, double[] b) {
+            double max = 0.0;
+            for (int i = 0; i < a.length; i++) {
+                max = Math.max(max, Math.abs(a[i] - b[i]));
+            }
+            return max;
+        }
+
+        @Override
+        public boolean withinEps(double[] a, int aOffset, double[] b,
+                                 int bOffset, int d, double eps) {
+            for (int i = 0; i < d; i++) {
+                if (Math.abs(a[aOffset + i] - b[bOffset + i]) > eps) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double boxRadius(double eps) {
+            // the eps-ball is the box itself
+            return eps;
+        }
+    },
+
+    /**
+     * Cosine distance 1 - cos(a, b). A zero vector is at distance 0 from
+     * another zero vector and at distance 1 from anything else.
+     */
+    COSINE {
+        @Override
+        public double distance(double[] a, double[] b) {
+            return cosineDist(a, 0, b, 0, a.length);
+        }
+
+        @Override
+        public boolean withinEps(double[] a, int aOffset, double[] b,
+                                 int bOffset, int d, double eps) {
+            return cosineDist(a, aOffset, b, bOffset, d) <= eps;
+        }
+
+        @Override
+        public double boxRadius(double eps) {
+            // neighbors are found by direction, not by position
+            return Double.POSITIVE_INFINITY;
+        }
+    };
+
+    private static double cosineDist(double[] a, int aOffset, double[] b,
+                                     int bOffset, int d) {
+        double dot = 0.0, normSqA = 0.0, normSqB = 0.0;
+        for (int i = 0; i < d; i++) {
+            double x = a[aOffset + i];
+            double y = b[bOffset + i];
+            dot += x * y;
+            normSqA += x * x;
+            normSqB += y * y;
+        }
+        if (normSqA == 0.0 || normSqB == 0.0) {
+            return normSqA == normSqB ? 0.0 : 1.0;
+        }
+        return 1.0 - dot / Math.sqrt(normSqA * normSqB);
+    }
+}
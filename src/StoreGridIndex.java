@@ -0,0 +1,126 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uniform grid over the ids of a {@link PointStore}. Range queries write
+ * the matching ids into a caller-supplied list.
+ */
+public class StoreGridIndex {
+
+    private final PointStore store;
+
+    private final double cellSide;  // side length of a grid cell
+
+    private final DistanceMetric metric;
+
+    private final HashMap<GridCell, IntList> cells;  // non-empty cells
+
+    private final GridCell center;  // scratch cells reused by queries
+
+    private final GridCell probe;
+
+    private final int[] offset;
+
+    public StoreGridIndex(final PointStore store, final double cellSide) {
+        this(store, cellSide, StandardMetric.EUCLIDEAN);
+    }
+
+    public StoreGridIndex(final PointStore store, final double cellSide,
+                          final DistanceMetric metric) {
+        if (cellSide <= 0.0) {
+            throw new IllegalArgumentException("Grid cell side must be " +
+                    "positive");
+        }
+
+        this.store = store;
+        this.cellSide = cellSide;
+        this.metric = metric;
+        this.cells = new HashMap<>();
+        this.center = new GridCell(new int[store.dimension()]);
+        this.probe = new GridCell(new int[store.dimension()]);
+        this.offset = new int[store.dimension()];
+    }
+
+    /**
+     * Add a stored point to the grid.
+     *
+     * @param id
+     */
+    public void insert(int id) {
+        GridCell key = cellOf(id);
+        IntList cell = cells.get(key);
+        if (cell == null) {
+            cell = new IntList(4);
+            cells.put(key, cell);
+        }
+        cell.add(id);
+    }
+
+    /**
+     * Find all indexed points within {@code eps} of point {@code id}.
+     *
+     * @param id        the point to look for
+     * @param eps       radius of the neighborhood
+     * @param neighbors cleared and filled with neighbor ids (including id)
+     * @return number of neighbors
+     */
+    public int getNeighbors(int id, double eps, IntList neighbors) {
+        neighbors.clear();
+        center.locate(store.coords, id * store.dimension(), cellSide);
+        double maxReach = Math.ceil(metric.boxRadius(eps) / cellSide);
+        int d = store.dimension();
+
+        if (Math.pow(2 * maxReach + 1, d) > cells.size()) {
+            for (Map.Entry<GridCell, IntList> entry :
+                    cells.entrySet()) {
+                if (entry.getKey().chebyshevDist(center) <= maxReach) {
+                    collect(id, eps, entry.getValue(), neighbors);
+                }
+            }
+            return neighbors.size();
+        }
+
+        int reach = (int) maxReach;
+        Arrays.fill(offset, -reach);
+        while (true) {
+            for (int i = 0; i < d; i++) {
+                probe.coords[i] = center.coords[i] + offset[i];
+            }
+            probe.rehash();
+            IntList cell = cells.get(probe);
+            if (cell != null) {
+                collect(id, eps, cell, neighbors);
+            }
+
+            int i = 0;
+            while (i < d && offset[i] == reach) {
+                offset[i] = -reach;
+                i++;
+            }
+            if (i == d) {
+                break;
+            }
+            offset[i]++;
+        }
+        return neighbors.size();
+    }
+
+    private void collect(int id, double eps, IntList cell,
+                         IntList neighbors) {
+        int d = store.dimension();
+        for (int i = 0; i < cell.size(); i++) {
+            int other = cell.get(i);
+            // include point itself
+            if (metric.withinEps(store.coords, id * d, store.coords,
+                    other * d, d, eps)) {
+                neighbors.add(other);
+            }
+        }
+    }
+
+    private GridCell cellOf(int id) {
+        return GridCell.of(store.coords, id * store.dimension(),
+                store.dimension(), cellSide);
+    }
+}